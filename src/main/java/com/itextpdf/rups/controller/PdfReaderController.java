@@ -45,21 +45,33 @@ package com.itextpdf.rups.controller;
 
 import com.itextpdf.rups.io.listeners.PdfTreeNavigationListener;
 import com.itextpdf.rups.model.ObjectLoader;
+import com.itextpdf.rups.model.PageLocator;
+import com.itextpdf.rups.model.ParentTreeIndex;
 import com.itextpdf.rups.model.PdfFile;
+import com.itextpdf.rups.model.ReferencePathIndex;
 import com.itextpdf.rups.model.TreeNodeFactory;
 import com.itextpdf.rups.view.PageSelectionListener;
 import com.itextpdf.rups.view.RupsMenuBar;
+import com.itextpdf.rups.view.contextmenu.ContextMenuMouseListener;
 import com.itextpdf.rups.view.contextmenu.PdfTreeContextMenu;
 import com.itextpdf.rups.view.contextmenu.PdfTreeContextMenuMouseListener;
+import com.itextpdf.rups.view.contextmenu.StructureTreeContextMenu;
+import com.itextpdf.rups.view.models.DictionaryTableModel;
 import com.itextpdf.rups.view.itext.*;
 import com.itextpdf.rups.view.itext.treenodes.PdfObjectTreeNode;
 import com.itextpdf.rups.view.itext.treenodes.PdfTrailerTreeNode;
 import com.itextpdf.text.pdf.PRStream;
+import com.itextpdf.text.pdf.PdfDictionary;
+import com.itextpdf.text.pdf.PdfName;
+import com.itextpdf.text.pdf.PdfNumber;
 import com.itextpdf.text.pdf.PdfObject;
 
 import javax.swing.*;
 import javax.swing.event.TreeSelectionListener;
+import javax.swing.tree.DefaultTreeModel;
+import javax.swing.tree.TreeNode;
 import java.awt.event.KeyListener;
+import java.io.IOException;
 import java.util.Observable;
 import java.util.Observer;
 
@@ -82,8 +94,16 @@ public class PdfReaderController extends Observable implements Observer {
 	protected FormTree form;
 	/** JTable corresponding with the CrossReference table. */
 	protected XRefTable xref;
+	/** JTable with the number of objects and bytes per type and filter. */
+	protected ObjectStatisticsTable statistics;
+	/** Searches the objects for keys and values. */
+	protected SearchPanel search;
+	/** Shows how many objects and tree nodes are kept in memory. */
+	protected ResidencyLabel residency;
 	/** A panel that will show PdfObjects. */
 	protected PdfObjectPanel objectPanel;
+	/** The node of which the object is shown in the object panel. */
+	protected PdfObjectTreeNode shown;
 	/** Tabbed Pane containing other components. */
 	protected JTabbedPane editorTabs;
 	/** A panel that will show a stream. */
@@ -91,6 +111,14 @@ public class PdfReaderController extends Observable implements Observer {
 
 	/** The factory producing tree nodes. */
 	protected TreeNodeFactory nodes;
+	/** The loader that is loading the objects of the current file. */
+	protected ObjectLoader loader;
+	/** The shortest paths from the trailer to the objects of the current file. */
+	protected ReferencePathIndex paths;
+	/** Finds the pages of the current file by page number. */
+	protected PageLocator locator;
+	/** Finds the structure elements of the current file by /StructParent(s) key. */
+	protected ParentTreeIndex parents;
 
 	/**
 	 * Constructs the PdfReaderController.
@@ -104,21 +132,30 @@ public class PdfReaderController extends Observable implements Observer {
 		pdfTree = new PdfTree();
 
 		pdfTree.addTreeSelectionListener(treeSelectionListener);
-        JPopupMenu menu = PdfTreeContextMenu.getPopupMenu(pdfTree);
+        JPopupMenu menu = PdfTreeContextMenu.getPopupMenu(pdfTree, this);
         pdfTree.add(menu);
         pdfTree.addMouseListener(new PdfTreeContextMenuMouseListener(menu, pdfTree));
 		addObserver(pdfTree);
+		residency = new ResidencyLabel();
+		addObserver(residency);
 
 		pages = new PagesTable(this, pageSelectionListener);
 		addObserver(pages);
 		outlines = new OutlineTree(this);
 		addObserver(outlines);
 		structure = new StructureTree(this);
+		JPopupMenu structureMenu = StructureTreeContextMenu.getPopupMenu(structure, this);
+		structure.add(structureMenu);
+		structure.addMouseListener(new ContextMenuMouseListener(structureMenu, structure));
 		addObserver(structure);
 		form = new FormTree(this);
 		addObserver(form);
 		xref = new XRefTable(this);
 		addObserver(xref);
+		statistics = new ObjectStatisticsTable();
+		addObserver(statistics);
+		search = new SearchPanel(this);
+		addObserver(search);
         
 		navigationTabs = new JTabbedPane();
 		navigationTabs.addTab("Pages", null, new JScrollPane(pages), "Pages");
@@ -127,8 +164,15 @@ public class PdfReaderController extends Observable implements Observer {
 		navigationTabs.addTab("Form", null, new JScrollPane(form), "Interactive Form");
 		navigationTabs.addTab("XFA", null, new JScrollPane(form.getXfaTree()), "Tree view of the XFA form");
 		navigationTabs.addTab("XRef", null, new JScrollPane(xref), "Cross-reference table");
+		navigationTabs.addTab("Statistics", null, new JScrollPane(statistics), "Objects and bytes by type and filter");
+		navigationTabs.addTab("Search", null, search, "Find keys and values in the objects");
 
 		objectPanel = new PdfObjectPanel();
+		objectPanel.setDictionaryListener(new DictionaryTableModel.DictionaryListener() {
+			public void dictionaryChanged(PdfDictionary dictionary) {
+				keepObject(shown);
+			}
+		});
 		addObserver(objectPanel);
 		streamPane = new SyntaxHighlightedStreamPane();
 		addObserver(streamPane);
@@ -137,6 +181,14 @@ public class PdfReaderController extends Observable implements Observer {
 		editorTabs.addTab("XFA", null, form.getXfaTextArea(), "XFA Form XML file");
 	}
 
+	/**
+	 * Getter for the label with the residency of the objects.
+	 * @return	a label
+	 */
+	public ResidencyLabel getResidencyLabel() {
+		return residency;
+	}
+
 	/**
 	 * Getter for the PDF Tree.
 	 * @return the PdfTree object
@@ -187,10 +239,47 @@ public class PdfReaderController extends Observable implements Observer {
 	 * @param file	the wrapper object that holds the PdfReader as member variable
 	 */
 	public void startObjectLoader(PdfFile file) {
+		startObjectLoader(file, false);
+	}
+
+	/**
+	 * Starts loading the PDF Objects in background.
+	 * @param file	the wrapper object that holds the PdfReader as member variable
+	 * @param lazy	if true, the objects aren't parsed until they are asked for
+	 */
+	public void startObjectLoader(PdfFile file, boolean lazy) {
+		startObjectLoader(file, lazy, false);
+	}
+
+	/**
+	 * Starts loading the PDF Objects in background.
+	 * @param file	the wrapper object that holds the PdfReader as member variable
+	 * @param lazy	if true, the objects aren't parsed until they are asked for
+	 * @param progressive	if true, the GUI components are updated while the objects are scanned
+	 */
+	public void startObjectLoader(PdfFile file, boolean lazy, boolean progressive) {
+		cancelObjectLoader();
 		setChanged();
 		notifyObservers();
 		setChanged();
-		new ObjectLoader(this, file.getPdfReader(), file.getFilename());
+		shown = null;
+		loader = new ObjectLoader(this, file, lazy, progressive);
+	}
+
+	/**
+	 * Stops the loader of the current file, if it's still running.
+	 */
+	protected void cancelObjectLoader() {
+		if (loader != null) {
+			loader.cancel();
+			loader = null;
+		}
+		if (paths != null) {
+			paths.interrupt();
+			paths = null;
+		}
+		locator = null;
+		parents = null;
 	}
 
 	/**
@@ -198,27 +287,65 @@ public class PdfReaderController extends Observable implements Observer {
 	 * can only be shown if all objects are loaded into the
 	 * IndirectObjectFactory using the ObjectLoader.
 	 * As soon as this is done, the GUI components are notified.
+	 * In progressive mode, they are notified when the loading starts,
+	 * and again every time a chunk of objects has been scanned.
+	 * Notifications of a loader that was cancelled are ignored, except
+	 * for ObjectLoader.CANCELLED when the user cancelled the loading.
 	 * @param	obj	in this case the Object should be an ObjectLoader
 	 * @see java.util.Observable#notifyObservers(java.lang.Object)
 	 */
 	@Override
 	public void notifyObservers(Object obj) {
+		if (obj instanceof ObjectLoader.Published
+				&& ((ObjectLoader.Published)obj).getLoader().isCancelled()) {
+			return;
+		}
 		if (obj instanceof ObjectLoader) {
 			ObjectLoader loader = (ObjectLoader)obj;
+			if (loader.isCancelled())
+				return;
 			nodes = loader.getNodes();
 			PdfTrailerTreeNode root = pdfTree.getRoot();
 			root.setTrailer(loader.getReader().getTrailer());
 			root.setUserObject("PDF Object Tree (" + loader.getLoaderName() + ")");
 			nodes.expandNode(root);
+			locator = new PageLocator(loader.getReader());
+			if (loader.getPdfFile() != null && paths == null)
+				paths = new ReferencePathIndex(loader.getPdfFile(), loader.getObjects().getXRefMaximum());
+			setChanged();
+		}
+		else if (obj instanceof ObjectLoader.Published || ObjectLoader.CANCELLED.equals(obj)) {
+			setChanged();
 		}
 		super.notifyObservers(obj);
 	}
 
+	/**
+	 * Creates the child nodes of a node in the PdfTree
+	 * (if that hasn't happened yet) and shows them.
+	 * @param node a node in the PdfTree
+	 */
+	public void expandNode(PdfObjectTreeNode node) {
+		if (node.isExpanded())
+			return;
+		nodes.expandNode(node);
+		((DefaultTreeModel)pdfTree.getModel()).nodeStructureChanged(node);
+	}
+
 	/**
 	 * Selects a node in the PdfTree.
+	 * If the node is the node of an indirect object that isn't part of
+	 * the tree (for instance a node of the pages table), the object is
+	 * selected along its path from the trailer instead.
 	 * @param node a node in the PdfTree
 	 */
 	public void selectNode(PdfObjectTreeNode node) {
+		if (node != null && node.getRoot() != pdfTree.getRoot()
+				&& !node.isIndirectReference() && node.getNumber() > -1) {
+			PdfObjectTreeNode attached = getNodeOnPath(node.getNumber());
+			if (attached != null)
+				node = attached;
+		}
 		pdfTree.selectNode(node);
 	}
 
@@ -227,7 +354,41 @@ public class PdfReaderController extends Observable implements Observer {
 	 * @param objectNumber a number of a node in the PdfTree
 	 */
 	public void selectNode(int objectNumber) {
-		selectNode(nodes.getNode(objectNumber));
+		PdfObjectTreeNode node = getNodeOnPath(objectNumber);
+		pdfTree.selectNode(node != null ? node : nodes.getNode(objectNumber));
+	}
+
+	/**
+	 * Selects the node of a direct object inside an indirect object in the PdfTree,
+	 * for instance an entry that was found by a search.
+	 * @param objectNumber	the number of the indirect object
+	 * @param steps			the keys (PdfName) and indexes (Integer) that lead to the entry
+	 */
+	public void selectNode(int objectNumber, Object[] steps) {
+		PdfObjectTreeNode node = getNodeOnPath(objectNumber);
+		if (node == null)
+			node = nodes.getNode(objectNumber);
+		PdfObjectTreeNode entry = nodes.getNodeInObject(node, steps);
+		((DefaultTreeModel)pdfTree.getModel()).nodeStructureChanged(node);
+		pdfTree.selectNode(entry);
+	}
+
+	/**
+	 * Gets the node of an indirect object that can be reached from the
+	 * root of the PdfTree, following the shortest path of references
+	 * from the trailer once it is known.
+	 * @param objectNumber	the number of an indirect object
+	 * @return	a node in the PdfTree, or null if the path isn't known
+	 */
+	protected PdfObjectTreeNode getNodeOnPath(int objectNumber) {
+		if (nodes == null)
+			return null;
+		PdfObjectTreeNode node = nodes.getNode(objectNumber);
+		if (node.getRoot() == pdfTree.getRoot())
+			return node;
+		if (paths == null)
+			return null;
+		return nodes.getNodeOnPath(pdfTree.getRoot(), paths.getPath(objectNumber));
 	}
 
 	/**
@@ -248,15 +409,77 @@ public class PdfReaderController extends Observable implements Observer {
 
 	/**
 	 * Selects the row in the pageTable that corresponds with
-	 * a certain page number.
-	 * @param pageNumber the page number that needs to be selected
+	 * a certain page number. If the row isn't there yet, the page
+	 * is found with the PageLocator and selected in the PdfTree,
+	 * without waiting for the pages table.
+	 * @param pageNumber	a page number (the first page is 1)
+	 * @return	the page number, or -1 if the document doesn't have such a page
 	 */
-	public void gotoPage(int pageNumber) {
-		pageNumber--;
-		if (pages == null || pages.getSelectedRow() == pageNumber)
-			return;
-		if (pageNumber < pages.getRowCount())
-			pages.setRowSelectionInterval(pageNumber, pageNumber);
+	public int gotoPage(int pageNumber) {
+		if (pages == null || pageNumber < 1)
+			return -1;
+		int row = pageNumber - 1;
+		// the pages table calls back when its selection changes
+		if (pages.getSelectedRow() == row)
+			return pageNumber;
+		if (row < pages.getRowCount()) {
+			pages.setRowSelectionInterval(row, row);
+			pages.scrollRectToVisible(pages.getCellRect(row, 0, true));
+			return pageNumber;
+		}
+		int ref = locator == null ? -1 : locator.locate(pageNumber);
+		if (ref < 0)
+			return -1;
+		selectNode(ref);
+		return pageNumber;
+	}
+
+	/**
+	 * Gets the /StructParents key of a page, found with the PageLocator.
+	 * @param pageNumber	a page number (the first page is 1)
+	 * @return	the key, or -1 if the page doesn't exist or has no /StructParents
+	 */
+	public int getStructParents(int pageNumber) {
+		if (locator == null || loader == null)
+			return -1;
+		int ref = locator.locate(pageNumber);
+		if (ref < 0)
+			return -1;
+		PdfObject page = loader.getReader().getPdfObjectRelease(ref);
+		if (!(page instanceof PdfDictionary))
+			return -1;
+		PdfNumber key = ((PdfDictionary)page).getAsNumber(PdfName.STRUCTPARENTS);
+		return key == null ? -1 : key.intValue();
+	}
+
+	/**
+	 * Finds a structure element in the /ParentTree of the current file.
+	 * @param key	a /StructParent key, or the /StructParents key of a page
+	 * @param mcid	a marked-content identifier on the page,
+	 * 				or -1 if the key is a /StructParent key
+	 * @return	the object number of the structure element, or -1
+	 */
+	public int findStructureElement(int key, int mcid) {
+		if (loader == null || loader.getNodes() == null)
+			return -1;
+		if (parents == null)
+			parents = new ParentTreeIndex(loader.getReader());
+		if (mcid < 0)
+			return parents.findElement(key);
+		return parents.findElement(key, mcid);
+	}
+
+	/**
+	 * Shows a structure element in the StructureTree, and the
+	 * corresponding object in the PdfTree.
+	 * @param ref	the object number of a structure element
+	 */
+	public void selectStructureElement(int ref) {
+		int tab = navigationTabs.indexOfTab("Structure");
+		if (tab > -1)
+			navigationTabs.setSelectedIndex(tab);
+		if (!structure.selectElement(ref))
+			selectNode(ref);
 	}
 
 	/**
@@ -267,6 +490,7 @@ public class PdfReaderController extends Observable implements Observer {
 	 */
 	public void update(Observable observable, Object obj) {
 		if (RupsMenuBar.CLOSE.equals(obj)) {
+			cancelObjectLoader();
 			setChanged();
 			notifyObservers(null);
 
@@ -279,7 +503,7 @@ public class PdfReaderController extends Observable implements Observer {
 		}
 		if (obj instanceof PdfObjectTreeNode) {
 			PdfObjectTreeNode node = (PdfObjectTreeNode)obj;
-			nodes.expandNode(node);
+			expandNode(node);
 
 			if (node.isRecursive() ) {
                 boolean keyboardNav = false;
@@ -298,17 +522,48 @@ public class PdfReaderController extends Observable implements Observer {
                     return;
                 }
 			}
+			shown = node;
 			render(node.getPdfObject());
 		}
 	}
 
+	/**
+	 * Keeps the indirect object that contains a dictionary that was
+	 * changed in the object panel, so that the change isn't lost when
+	 * the object is released. The dictionary can be the object itself
+	 * or be nested in it, for instance in an array.
+	 * @param node	the node of the dictionary that was changed
+	 */
+	protected void keepObject(PdfObjectTreeNode node) {
+		if (node == null || loader == null || loader.getObjects() == null)
+			return;
+		for (TreeNode current = node; current instanceof PdfObjectTreeNode; current = current.getParent()) {
+			PdfObjectTreeNode object = (PdfObjectTreeNode)current;
+			if (!object.isIndirectReference() && object.getNumber() > -1) {
+				loader.getObjects().keepObject(object.getNumber(), object.getPdfObject());
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Copies the objects that may have been changed into the reader,
+	 * before the reader is written.
+	 */
+	public void storeChanges() {
+		if (loader != null && loader.getObjects() != null)
+			loader.getObjects().storeKeptObjects();
+	}
+
     /**
      * Adds tabs that don't need to be an observer. Also removes them when they are present to avoid duplication.
+     * The plain text view gets a source of its own, as the ObjectLoader may be reading the main source in another thread.
      * @param file
+     * @throws IOException
      */
-    public void addNonObserverTabs(PdfFile file) {
+    public void addNonObserverTabs(PdfFile file) throws IOException {
         if ( navigationTabs.indexOfTab("PlainText") != -1 )
             navigationTabs.remove(navigationTabs.indexOfTab("PlainText"));
-        navigationTabs.addTab("PlainText", null, new JScrollPane(new JTextArea(file.getRawContent())), "Plain text representation of the PDF");
+        navigationTabs.addTab("PlainText", null, new PlainTextArea(file.openSource()), "Plain text representation of the PDF");
     }
 }
@@ -45,6 +45,7 @@ package com.itextpdf.rups.controller;
 
 import com.itextpdf.rups.io.FileChooserAction;
 import com.itextpdf.rups.io.FileCloseAction;
+import com.itextpdf.rups.model.ObjectLoader;
 import com.itextpdf.rups.model.PdfFile;
 import com.itextpdf.rups.view.Console;
 import com.itextpdf.rups.view.PageSelectionListener;
@@ -72,6 +73,7 @@ import java.net.URL;
 import java.net.URLDecoder;
 import java.util.LinkedList;
 import java.util.Observable;
+import java.util.Observer;
 import java.util.StringTokenizer;
 
 /**
@@ -112,6 +114,13 @@ public class RupsController extends Observable
 		addObserver(console);
 		readerController = new PdfReaderController(this, this);
 		addObserver(readerController);
+		readerController.addObserver(new Observer() {
+			public void update(Observable observable, Object obj) {
+				// the user cancelled the loading of the file
+				if (ObjectLoader.CANCELLED.equals(obj))
+					close();
+			}
+		});
 
         // creating the master component
 		masterComponent = new JSplitPane();
@@ -162,7 +171,10 @@ public class RupsController extends Observable
 		content.setOrientation(JSplitPane.HORIZONTAL_SPLIT);
 		content.setDividerLocation((int)(dimension.getWidth() * .6));
 		content.setDividerSize(1);
-        content.add(new JScrollPane(readerController.getPdfTree()), JSplitPane.LEFT);
+		JPanel tree = new JPanel(new BorderLayout());
+		tree.add(new JScrollPane(readerController.getPdfTree()), BorderLayout.CENTER);
+		tree.add(readerController.getResidencyLabel(), BorderLayout.SOUTH);
+        content.add(tree, JSplitPane.LEFT);
 		content.add(readerController.getNavigationTabs(), JSplitPane.RIGHT);
 
 		info.setDividerLocation((int) (dimension.getWidth() * .3));
@@ -213,27 +225,32 @@ public class RupsController extends Observable
 			return;
 		}
 		if (obj instanceof FileCloseAction) {
-			pdfFile = null;
-			setChanged();
-			super.notifyObservers(RupsMenuBar.CLOSE);
+			close();
 			return;
 		}
 	}
 
+	/**
+	 * Closes the pdf that is currently open (if any) and tells the observers.
+	 */
+	protected void close() {
+		closeFile();
+		setChanged();
+		super.notifyObservers(RupsMenuBar.CLOSE);
+	}
+
 	/**
 	 * @param file the file to load
 	 */
 	public void loadFile(File file) {
 		try {
-            byte[] contents = readFileToByteArray(file);
-
-            pdfFile = new PdfFile(contents);
-            pdfFile.setDirectory(file.getParentFile());
-            pdfFile.setFilename(file.getName());
+			PdfFile opened = new PdfFile(file);
+			closeFile();
+			pdfFile = opened;
 
             setChanged();
 			super.notifyObservers(RupsMenuBar.OPEN);
-			readerController.startObjectLoader(pdfFile);
+			readerController.startObjectLoader(pdfFile, menuBar.isLazyLoading(), menuBar.isProgressiveLoading());
             readerController.addNonObserverTabs(pdfFile);
 		}
 		catch(IOException ioe) {
@@ -245,39 +262,17 @@ public class RupsController extends Observable
 	}
 
     /**
-     * Reads a File to a byte[]
-     *
-     * @param file java.io.File
-     * @return the file as a byte array
-     * @throws IOException
+     * Closes the pdf that is currently open (if any), unmapping the file.
      */
-    private byte[] readFileToByteArray(File file) throws IOException {
-        ByteArrayOutputStream byteArrayOutputStream = null;
-        InputStream inputStream = null;
+    private void closeFile() {
+        if ( pdfFile == null )
+            return;
         try {
-            byte[] buffer = new byte[4096];
-            byteArrayOutputStream = new ByteArrayOutputStream();
-            inputStream = new FileInputStream(file);
-            int read = 0;
-            while ( (read = inputStream.read(buffer)) != -1 ) {
-                byteArrayOutputStream.write(buffer, 0, read);
-            }
-        } finally {
-            try {
-                if ( byteArrayOutputStream != null )
-                    byteArrayOutputStream.close();
-            } catch ( IOException e) {
-                e.printStackTrace(); // log to console
-            }
-
-            try {
-                if ( inputStream != null )
-                    inputStream.close();
-            } catch ( IOException e) {
-                e.printStackTrace(); // log to console
-            }
+            pdfFile.close();
+        } catch ( IOException e ) {
+            e.printStackTrace(); // log to console
         }
-        return byteArrayOutputStream.toByteArray();
+        pdfFile = null;
     }
 
     /**
@@ -296,9 +291,25 @@ public class RupsController extends Observable
             if ( !file.getName().endsWith(".pdf") ) {
                 file = new File(file.getPath() + ".pdf");
             }
+            // the open file is mapped into memory, so it can't be written to directly;
+            // once it's closed, it's unmapped and the copy can replace it
+            File open = new File(pdfFile.getDirectory(), pdfFile.getFilename());
+            boolean overwrite = file.getCanonicalFile().equals(open.getCanonicalFile());
+            File target = overwrite ? File.createTempFile("rups", ".pdf", file.getParentFile()) : file;
+
+            readerController.storeChanges();
             pdfFile.getPdfReader().removeUnusedObjects();
-            PdfStamper stamper = new PdfStamper(pdfFile.getPdfReader(), new FileOutputStream(file));
+            PdfStamper stamper = new PdfStamper(pdfFile.getPdfReader(), new FileOutputStream(target));
             stamper.close();
+
+            if ( overwrite ) {
+                closeFile();
+                if ( !file.delete() || !target.renameTo(file) ) {
+                    JOptionPane.showMessageDialog(masterComponent, "File could not be overwritten; it was saved as " + target.getPath(), "Dialog", JOptionPane.ERROR_MESSAGE);
+                    loadFile(target);
+                    return;
+                }
+            }
             JOptionPane.showMessageDialog(masterComponent, "File saved.", "Dialog", JOptionPane.INFORMATION_MESSAGE);
 
 
@@ -329,11 +340,13 @@ public class RupsController extends Observable
 	// page navigation
 
 	/**
+	 * Selects a page of the current file, if it has such a page.
 	 * @see com.itextpdf.rups.view.PageSelectionListener#gotoPage(int)
 	 */
 	public int gotoPage(int pageNumber) {
-		readerController.gotoPage(pageNumber);
-		return pageNumber;
+		if (pdfFile == null)
+			return -1;
+		return readerController.gotoPage(pageNumber);
 	}
 
     /**
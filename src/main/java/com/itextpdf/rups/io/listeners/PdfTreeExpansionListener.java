@@ -45,7 +45,9 @@ package com.itextpdf.rups.io.listeners;
 
 import com.itextpdf.rups.view.itext.PdfTree;
 import com.itextpdf.rups.view.itext.treenodes.PdfObjectTreeNode;
+import com.itextpdf.rups.view.models.PdfTreeModel;
 
+import javax.swing.SwingUtilities;
 import javax.swing.event.TreeExpansionEvent;
 import javax.swing.event.TreeExpansionListener;
 import javax.swing.tree.DefaultMutableTreeNode;
@@ -62,6 +64,9 @@ public class PdfTreeExpansionListener implements TreeExpansionListener {
     public void treeExpanded(TreeExpansionEvent event) {
         PdfTree  tree = (PdfTree) event.getSource();
         DefaultMutableTreeNode node = ((DefaultMutableTreeNode) event.getPath().getLastPathComponent());
+        if ( tree.getModel() instanceof PdfTreeModel ) {
+            ( (PdfTreeModel) tree.getModel() ).nodeExpanded(node);
+        }
         if ( node.getChildCount() == 1 ) {
             TreeNode child = node.getChildAt(0);
             tree.selectNode((PdfObjectTreeNode) child);
@@ -69,6 +74,19 @@ public class PdfTreeExpansionListener implements TreeExpansionListener {
         }
     }
 
+    /**
+     * Child nodes of collapsed nodes may be released once the collapse is done.
+     */
     public void treeCollapsed(TreeExpansionEvent event) {
+        final PdfTree tree = (PdfTree) event.getSource();
+        final TreePath path = event.getPath();
+        SwingUtilities.invokeLater(new Runnable() {
+            public void run() {
+                if ( tree.isCollapsed(path) && tree.getModel() instanceof PdfTreeModel
+                        && tree.getModel().getRoot() == path.getPathComponent(0) ) {
+                    ( (PdfTreeModel) tree.getModel() ).nodeCollapsed(path.getLastPathComponent());
+                }
+            }
+        });
     }
 }
\ No newline at end of file
@@ -43,84 +43,131 @@
  */
 package com.itextpdf.rups.model;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import javax.swing.SwingUtilities;
 
 /**
  * Allows you to perform long lasting tasks in background.
- * If we ever move to Java 6, we should use the SwingWorker class
- * (included in the JDK) instead of this custom Event Dispatching
- * code.
+ * The tasks are run by the TaskScheduler; they can be cancelled with
+ * interrupt() and they can publish intermediate results, which are
+ * passed to process() on the event dispatching thread.
  */
 
 public abstract class BackgroundTask {
 
-	/**
-     * Inner class that holds the reference to the thread.
+	/** The token that cancels this task. */
+	private final CancellationToken token = new CancellationToken();
+	/** The priority of this task (see TaskScheduler). */
+	private final int priority;
+	/** The results that were published, but haven't been processed yet. */
+	private List<Object> chunks = new ArrayList<Object>();
+
+    /**
+     * Creates a task that the user is waiting for.
      */
-    private static class ThreadWrapper {
-        private Thread thread;
-        ThreadWrapper(Thread t) { thread = t; }
-        synchronized Thread get() { return thread; }
-        synchronized void clear() { thread = null; }
+    public BackgroundTask() {
+    	this(TaskScheduler.INTERACTIVE);
     }
 
-	/** A wrapper for the tread that executes a time-consuming task. */
-    private ThreadWrapper thread;
+    /**
+     * Creates a task.
+     * @param priority	TaskScheduler.INTERACTIVE or TaskScheduler.BACKGROUND
+     */
+    public BackgroundTask(int priority) {
+    	this.priority = priority;
+    }
 
     /**
-     * Starts a thread.
-     * Executes the time-consuming task in the construct method;
-     * finally calls the finish().
+     * Implement this class; the time-consuming task will go here.
      */
-    public BackgroundTask() {
+    public abstract void doTask();
+
+    /**
+     * Schedules the task.
+     * Executes the time-consuming task in the doTask method;
+     * finally calls finished() on the event dispatching thread.
+     */
+    public void start() {
         final Runnable doFinished = new Runnable() {
            public void run() { finished(); }
         };
-
-        Runnable doConstruct = new Runnable() {
+        TaskScheduler.getInstance().submit(new Runnable() {
             public void run() {
                 try {
                 	doTask();
                 }
                 finally {
-                    thread.clear();
+                    SwingUtilities.invokeLater(doFinished);
                 }
-                SwingUtilities.invokeLater(doFinished);
             }
-        };
-        Thread t = new Thread(doConstruct);
-        thread = new ThreadWrapper(t);
+        }, priority, token);
     }
 
     /**
-     * Implement this class; the time-consuming task will go here.
+     * Forces the task to stop what it's doing.
      */
-    public abstract void doTask();
+    public void interrupt() {
+        token.cancel();
+    }
 
     /**
-     * Starts the thread.
+     * Tells you if the task was interrupted.
+     * Long loops in doTask() should check this regularly.
+     * @return	true if interrupt() was called
      */
-    public void start() {
-        Thread t = thread.get();
-        if (t != null) {
-            t.start();
-        }
+    public boolean isInterrupted() {
+        return token.isCancelled();
     }
 
     /**
-     * Forces the thread to stop what it's doing.
+     * Getter for the token that cancels this task, so that
+     * the task can pass it to the tasks it schedules itself.
+     * @return	a cancellation token
      */
-    public void interrupt() {
-        Thread t = thread.get();
-        if (t != null) {
-            t.interrupt();
+    protected CancellationToken getToken() {
+        return token;
+    }
+
+    /**
+     * Publishes an intermediate result. The results that are
+     * published before the event dispatching thread gets to them
+     * are passed to process() together.
+     * @param chunk	an intermediate result
+     */
+    protected void publish(Object chunk) {
+        boolean schedule;
+        synchronized(this) {
+            schedule = chunks.isEmpty();
+            chunks.add(chunk);
+        }
+        if (schedule) {
+            SwingUtilities.invokeLater(new Runnable() {
+                public void run() {
+                    List<Object> published;
+                    synchronized(BackgroundTask.this) {
+                        published = chunks;
+                        chunks = new ArrayList<Object>();
+                    }
+                    if (!isInterrupted())
+                        process(published);
+                }
+            });
         }
-        thread.clear();
+    }
+
+    /**
+     * Called on the event dispatching thread with the results
+     * that were published.
+     * @param chunks	the intermediate results, in the order they were published
+     */
+    protected void process(List<Object> chunks) {
     }
 
     /**
      * Called on the event dispatching thread once the
-     * construct method has finished its task.
+     * doTask method has finished its task.
      */
     public void finished() {
     }
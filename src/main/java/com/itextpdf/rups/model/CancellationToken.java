@@ -41,51 +41,44 @@
  * For more information, please contact iText Software Corp. at this
  * address: sales@itextpdf.com
  */
-package com.itextpdf.rups.view.itext;
+package com.itextpdf.rups.model;
 
-import java.util.ArrayList;
-import java.util.Enumeration;
-import java.util.List;
-
-import com.itextpdf.rups.model.TreeNodeFactory;
-import com.itextpdf.rups.view.itext.treenodes.PdfPageTreeNode;
-import com.itextpdf.text.pdf.PdfArray;
-import com.itextpdf.text.pdf.PdfDictionary;
-import com.itextpdf.text.pdf.PdfIndirectReference;
-import com.itextpdf.text.pdf.PdfName;
+/**
+ * A token that tells a task it should stop what it's doing.
+ * The task checks the token regularly; whoever owns the token
+ * can cancel the task at any time, from any thread.
+ */
+public class CancellationToken {
 
-class PageEnumerator implements Enumeration<PdfPageTreeNode> {
+	/** Indicates if the task was cancelled. */
+	private volatile boolean cancelled;
+	/** The thread that runs the task (if it's running). */
+	private Thread thread;
 
-	protected List<PdfPageTreeNode> pages = new ArrayList<PdfPageTreeNode>();
-	protected TreeNodeFactory factory;
-	protected int cursor = 0;
-	
-	public PageEnumerator(PdfDictionary catalog, TreeNodeFactory factory) {
-		this.factory = factory;
-		expand(catalog.getAsIndirectObject(PdfName.PAGES), catalog.getAsDict(PdfName.PAGES));
-	}
-	
-	public boolean hasMoreElements() {
-		return cursor < pages.size();
+	/**
+	 * Cancels the task, and interrupts the thread that runs it.
+	 */
+	public synchronized void cancel() {
+		cancelled = true;
+		if (thread != null)
+			thread.interrupt();
 	}
 
-	public PdfPageTreeNode nextElement() {
-		return pages.get(cursor++);
+	/**
+	 * Tells you if the task was cancelled.
+	 * @return	true if cancel() was called
+	 */
+	public boolean isCancelled() {
+		return cancelled;
 	}
 
-	public void expand(PdfIndirectReference ref, PdfDictionary dict) {
-		if (dict == null)
-			return;
-		if (dict.isPages()) {
-			PdfArray kids = dict.getAsArray(PdfName.KIDS);
-			if (kids != null) {
-				for (int i = 0; i < kids.size(); i++) {
-					expand(kids.getAsIndirectObject(i), kids.getAsDict(i));
-				}
-			}
-		}
-		else if (dict.isPage()) {
-			pages.add((PdfPageTreeNode)factory.getNode(ref.getNumber()));
-		}
+	/**
+	 * Sets or clears the thread that runs the task.
+	 * @param thread	the current thread, or null when the task is done
+	 */
+	synchronized void setThread(Thread thread) {
+		this.thread = thread;
+		if (cancelled && thread != null)
+			thread.interrupt();
 	}
 }
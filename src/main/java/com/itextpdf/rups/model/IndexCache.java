@@ -0,0 +1,402 @@
+/*
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 2007-2015 iText Group NV
+ * Authors: Bruno Lowagie et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.rups.model;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import com.itextpdf.text.io.RandomAccessSource;
+
+/**
+ * Keeps the index of a PDF file on disk, so that the xref table doesn't
+ * have to be scanned again when the same file is opened again.
+ * A cache entry contains the object numbers that exist and the object
+ * type index (from which the page dictionaries are known). An entry is
+ * only used if the path, the size, the modification date and a hash of
+ * the first and last bytes of the file are unchanged.
+ * When the total size of the cache exceeds its limit, the entries that
+ * haven't been used for the longest time are removed.
+ */
+public class IndexCache {
+
+	/** The system property with the directory of the cache. */
+	public static final String DIRECTORY_PROPERTY = "rups.cache.dir";
+	/** The system property with the maximum size of the cache in megabytes (0 disables the cache). */
+	public static final String SIZE_PROPERTY = "rups.cache.size";
+	/** The default maximum size of the cache in megabytes. */
+	public static final long DEFAULT_SIZE = 256;
+
+	/** Identifies a cache entry. */
+	protected static final int MAGIC = 0x52555053;
+	/** The version of the format of a cache entry. */
+	protected static final int VERSION = 1;
+	/** The extension of a cache entry. */
+	protected static final String EXTENSION = ".idx";
+	/** The number of bytes at the start and at the end of a file that are hashed. */
+	protected static final int SAMPLE = 64 * 1024;
+
+	/** The directory with the cache entries. */
+	protected File directory;
+	/** The maximum total size of the cache entries in bytes. */
+	protected long maxSize;
+
+	/**
+	 * Creates a cache.
+	 * @param directory	the directory with the cache entries
+	 * @param maxSize	the maximum total size of the cache entries in bytes
+	 */
+	public IndexCache(File directory, long maxSize) {
+		this.directory = directory;
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Creates a cache in the directory and with the size of the system properties,
+	 * or in .rups/cache in the home directory of the user.
+	 * @return	a cache, or null if the cache is disabled
+	 */
+	public static IndexCache getDefault() {
+		long size = DEFAULT_SIZE;
+		try {
+			size = Long.parseLong(System.getProperty(SIZE_PROPERTY, String.valueOf(DEFAULT_SIZE)));
+		}
+		catch(NumberFormatException nfe) {
+			// use the default size
+		}
+		if (size <= 0)
+			return null;
+		String dir = System.getProperty(DIRECTORY_PROPERTY);
+		File directory = dir != null ? new File(dir)
+				: new File(new File(System.getProperty("user.home"), ".rups"), "cache");
+		return new IndexCache(directory, size * 1024 * 1024);
+	}
+
+	/**
+	 * Loads the index of a PDF file into an object factory.
+	 * @param file		the PDF file
+	 * @param objects	an empty object factory for the PDF file
+	 * @return	true if a valid cache entry was found and loaded
+	 */
+	public boolean load(PdfFile file, IndirectObjectFactory objects) {
+		File pdf = file.getFile();
+		if (pdf == null)
+			return false;
+		File entry = getEntry(pdf);
+		if (!entry.isFile())
+			return false;
+		RandomAccessFile raf = null;
+		try {
+			raf = new RandomAccessFile(entry, "r");
+			MappedByteBuffer buf = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+			if (buf.getInt() != MAGIC || buf.getInt() != VERSION)
+				return false;
+			if (!pdf.getCanonicalPath().equals(getString(buf))
+					|| buf.getLong() != pdf.length()
+					|| buf.getLong() != pdf.lastModified())
+				return false;
+			byte[] hash = new byte[buf.getInt()];
+			buf.get(hash);
+			if (!Arrays.equals(hash, hash(file)))
+				return false;
+			int n = buf.getInt();
+			if (n != objects.getXRefMaximum())
+				return false;
+			int[] refs = new int[buf.getInt()];
+			buf.asIntBuffer().get(refs);
+			buf.position(buf.position() + 4 * refs.length);
+			ObjectTypeIndex types = new ObjectTypeIndex(n);
+			int names = buf.getInt();
+			for (int i = 1; i < names; i++) {
+				types.intern(getString(buf));
+			}
+			buf.get(types.kinds);
+			buf.asShortBuffer().get(types.types);
+			buf.position(buf.position() + 2 * types.types.length);
+			buf.asShortBuffer().get(types.subtypes);
+			buf.position(buf.position() + 2 * types.subtypes.length);
+			buf.asShortBuffer().get(types.filters);
+			buf.position(buf.position() + 2 * types.filters.length);
+			buf.asIntBuffer().get(types.lengths);
+			objects.storeObjects(refs, types);
+			entry.setLastModified(System.currentTimeMillis());
+			return true;
+		}
+		catch(IOException ioe) {
+			return false;
+		}
+		catch(RuntimeException re) {
+			// a truncated or damaged cache entry
+			return false;
+		}
+		finally {
+			close(raf);
+		}
+	}
+
+	/**
+	 * Stores the index of a PDF file, and removes old cache entries
+	 * if the cache has become too large.
+	 * @param file		the PDF file
+	 * @param objects	the object factory with all the objects of the PDF file
+	 */
+	public void store(PdfFile file, IndirectObjectFactory objects) {
+		File pdf = file.getFile();
+		if (pdf == null)
+			return;
+		File entry = getEntry(pdf);
+		File tmp = new File(directory, entry.getName() + ".tmp");
+		DataOutputStream out = null;
+		try {
+			if (!directory.isDirectory() && !directory.mkdirs())
+				return;
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 64 * 1024));
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			putString(out, pdf.getCanonicalPath());
+			out.writeLong(pdf.length());
+			out.writeLong(pdf.lastModified());
+			byte[] hash = hash(file);
+			out.writeInt(hash.length);
+			out.write(hash);
+			out.writeInt(objects.getXRefMaximum());
+			int size = objects.size();
+			out.writeInt(size);
+			for (int i = 0; i < size; i++) {
+				out.writeInt(objects.getRefByIndex(i));
+			}
+			ObjectTypeIndex types = objects.getTypeIndex();
+			synchronized(types) {
+				out.writeInt(types.names.size());
+				for (int i = 1; i < types.names.size(); i++) {
+					putString(out, types.names.get(i));
+				}
+			}
+			out.write(types.kinds);
+			for (short s : types.types)
+				out.writeShort(s);
+			for (short s : types.subtypes)
+				out.writeShort(s);
+			for (short s : types.filters)
+				out.writeShort(s);
+			for (int l : types.lengths)
+				out.writeInt(l);
+			out.close();
+			out = null;
+			if (entry.exists() && !entry.delete())
+				return;
+			if (!tmp.renameTo(entry))
+				return;
+			evict(entry);
+		}
+		catch(IOException ioe) {
+			ioe.printStackTrace();
+		}
+		finally {
+			if (out != null) {
+				try {
+					out.close();
+				}
+				catch(IOException ioe) {
+					// nothing we can do
+				}
+			}
+			tmp.delete();
+		}
+	}
+
+	/**
+	 * Removes the cache entries that haven't been used for the longest
+	 * time until the total size of the cache is below its limit.
+	 * @param keep	an entry that shouldn't be removed
+	 */
+	protected void evict(File keep) {
+		File[] entries = directory.listFiles();
+		if (entries == null)
+			return;
+		long total = 0;
+		for (File f : entries) {
+			if (f.getName().endsWith(EXTENSION))
+				total += f.length();
+		}
+		if (total <= maxSize)
+			return;
+		Arrays.sort(entries, new Comparator<File>() {
+			public int compare(File f1, File f2) {
+				long m1 = f1.lastModified();
+				long m2 = f2.lastModified();
+				return m1 < m2 ? -1 : m1 == m2 ? 0 : 1;
+			}
+		});
+		for (File f : entries) {
+			if (total <= maxSize)
+				break;
+			if (!f.getName().endsWith(EXTENSION) || f.equals(keep))
+				continue;
+			long length = f.length();
+			if (f.delete())
+				total -= length;
+		}
+	}
+
+	/**
+	 * Gets the cache entry of a PDF file.
+	 * @param pdf	the PDF file
+	 * @return	a file in the cache directory (that may not exist)
+	 */
+	protected File getEntry(File pdf) {
+		String path;
+		try {
+			path = pdf.getCanonicalPath();
+		}
+		catch(IOException ioe) {
+			path = pdf.getAbsolutePath();
+		}
+		return new File(directory, toHex(digest(path.getBytes())) + EXTENSION);
+	}
+
+	/**
+	 * Hashes the size and the first and last bytes of a PDF file.
+	 * The whole file isn't hashed, as that would take as long as
+	 * scanning the file.
+	 * @param file	the PDF file
+	 * @return	a hash
+	 * @throws IOException
+	 */
+	protected static byte[] hash(PdfFile file) throws IOException {
+		// the cache is read and written in the background; the source of the main reader isn't thread-safe
+		RandomAccessSource source = file.openSource();
+		try {
+			return hash(source);
+		}
+		finally {
+			source.close();
+		}
+	}
+
+	/**
+	 * Hashes the size and the first and last bytes of a source.
+	 * @param source	the source of the PDF file
+	 * @return	a hash
+	 * @throws IOException
+	 */
+	protected static byte[] hash(RandomAccessSource source) throws IOException {
+		long length = source.length();
+		byte[] sample = new byte[(int)Math.min(length, 2 * SAMPLE) + 8];
+		int head = (int)Math.min(length, SAMPLE);
+		source.get(0, sample, 0, head);
+		int tail = (int)Math.min(length - head, SAMPLE);
+		source.get(length - tail, sample, head, tail);
+		for (int i = 0; i < 8; i++) {
+			sample[head + tail + i] = (byte)(length >>> (8 * i));
+		}
+		return digest(sample);
+	}
+
+	/**
+	 * Calculates the SHA-1 digest of some bytes.
+	 */
+	private static byte[] digest(byte[] bytes) {
+		try {
+			return MessageDigest.getInstance("SHA-1").digest(bytes);
+		}
+		catch(NoSuchAlgorithmException nsae) {
+			throw new RuntimeException(nsae);
+		}
+	}
+
+	/**
+	 * Writes bytes as a hexadecimal String.
+	 */
+	private static String toHex(byte[] bytes) {
+		StringBuffer buf = new StringBuffer();
+		for (byte b : bytes) {
+			buf.append(Character.forDigit((b >> 4) & 0xf, 16));
+			buf.append(Character.forDigit(b & 0xf, 16));
+		}
+		return buf.toString();
+	}
+
+	/**
+	 * Writes a String as its length followed by its UTF-8 bytes.
+	 */
+	private static void putString(DataOutputStream out, String s) throws IOException {
+		byte[] bytes = s.getBytes("UTF-8");
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Reads a String that was written with putString.
+	 */
+	private static String getString(ByteBuffer buf) throws IOException {
+		byte[] bytes = new byte[buf.getInt()];
+		buf.get(bytes);
+		return new String(bytes, "UTF-8");
+	}
+
+	/**
+	 * Closes a file without complaining.
+	 */
+	private static void close(RandomAccessFile raf) {
+		if (raf == null)
+			return;
+		try {
+			raf.close();
+		}
+		catch(IOException ioe) {
+			// nothing we can do
+		}
+	}
+}
@@ -44,8 +44,13 @@
 package com.itextpdf.rups.model;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
-import com.itextpdf.text.pdf.IntHashtable;
+import com.itextpdf.text.pdf.PdfArray;
 import com.itextpdf.text.pdf.PdfDictionary;
 import com.itextpdf.text.pdf.PdfName;
 import com.itextpdf.text.pdf.PdfNull;
@@ -57,18 +62,50 @@ import com.itextpdf.text.pdf.PdfReader;
  */
 public class IndirectObjectFactory {
 
+	/** The system property with the maximum number of loaded objects that are kept in memory. */
+	public static final String MAX_LOADED_PROPERTY = "rups.objects.max";
+	/** The default maximum number of loaded objects that are kept in memory. */
+	public static final int DEFAULT_MAX_LOADED = 10000;
+
 	/** The reader object. */
 	protected PdfReader reader;
+	/** The reader that is used to scan the xref table (by default the reader object). */
+	protected PdfReader scanner;
 	/** The current xref number. */
 	protected int current;
 	/** The highest xref number. */
 	protected int n;
-	/** A list of all the indirect objects in a PDF file. */
-	protected ArrayList<PdfObject> objects = new ArrayList<PdfObject>();
-	/** Mapping between the index in the objects list and the reference number in the xref table.  */
-	protected IntHashtable idxToRef = new IntHashtable();
-	/** Mapping between the reference number in the xref table and the index in the objects list .  */
-	protected IntHashtable refToIdx = new IntHashtable();
+	/** The number of indirect objects that have been stored. */
+	protected int size = 0;
+	/** Mapping between the index in the list of indirect objects and the reference number in the xref table.  */
+	protected volatile int[] idxToRef = new int[16];
+	/** Mapping between the reference number in the xref table and the index in the list (-1 if there's no such object). */
+	protected int[] refToIdx;
+	/**
+	 * The reference numbers of the page dictionaries that were found while storing the objects.
+	 * The set is filled by the thread that scans the objects and read on the event dispatching
+	 * thread, so it is only accessed while holding its lock.
+	 */
+	protected final BitSet pages = new BitSet();
+	/** The kind, type, subtype, filter and length of the objects that were scanned. */
+	protected ObjectTypeIndex types;
+	/**
+	 * In lazy mode, objects are only parsed when they are asked for;
+	 * every object number in the xref table gets a row and the index
+	 * is the object number minus one.
+	 */
+	protected boolean lazy;
+	/**
+	 * The objects that have been loaded, by reference number. If there are
+	 * too many, the least recently used objects are released; they are
+	 * parsed again when they are asked for.
+	 */
+	protected LoadedObjects loaded = new LoadedObjects(getMaxLoaded());
+	/**
+	 * The objects that were changed in the GUI, by reference number. They are never released, and they are copied
+	 * into the reader before the file is saved.
+	 */
+	protected Map<Integer, PdfObject> kept = new HashMap<Integer, PdfObject>();
 	
 	/**
 	 * Creates a list that will contain all the indirect objects
@@ -76,9 +113,71 @@ public class IndirectObjectFactory {
 	 * @param reader	the reader that will read the PDF document
 	 */
 	public IndirectObjectFactory(PdfReader reader) {
+		this(reader, false);
+	}
+	
+	/**
+	 * Creates a list that will contain all the indirect objects
+	 * in a PDF document. 
+	 * @param reader	the reader that will read the PDF document
+	 * @param lazy		true if the objects should only be parsed when they are asked for;
+	 * 					the reader should be a partial reader in that case
+	 */
+	public IndirectObjectFactory(PdfReader reader, boolean lazy) {
 		this.reader = reader;
+		this.scanner = reader;
+		this.lazy = lazy;
 		current = -1;
 		n = reader.getXrefSize();
+		types = new ObjectTypeIndex(n);
+		if (!lazy) {
+			refToIdx = new int[n + 1];
+			Arrays.fill(refToIdx, -1);
+		}
+	}
+	
+	/**
+	 * Gets the maximum number of loaded objects that are kept in memory,
+	 * as set with the system property rups.objects.max.
+	 * @return	a number of objects (at least 1)
+	 */
+	public static int getMaxLoaded() {
+		return Math.max(1, Integer.getInteger(MAX_LOADED_PROPERTY, DEFAULT_MAX_LOADED).intValue());
+	}
+
+	/**
+	 * Gets the number of loaded objects that are kept in memory.
+	 * @return	a number of objects
+	 */
+	public int getLoadedCount() {
+		return loaded.size();
+	}
+
+	/**
+	 * Tells you if the objects are only parsed when they are asked for.
+	 * @return	true in lazy mode
+	 */
+	public boolean isLazy() {
+		return lazy;
+	}
+
+	/**
+	 * Sets the reader that is used to scan the xref table, so that the
+	 * objects can be loaded with the reader object in another thread
+	 * while the scan is running (PdfReader isn't thread-safe).
+	 * @param scanner	a reader for the same PDF file
+	 */
+	public void setScanner(PdfReader scanner) {
+		this.scanner = scanner;
+	}
+
+	/**
+	 * Gets the index with a descriptor of every object that was scanned.
+	 * In lazy mode, only the objects that have been loaded are described.
+	 * @return	an object type index
+	 */
+	public ObjectTypeIndex getTypeIndex() {
+		return types;
 	}
 
 	/**
@@ -106,35 +205,132 @@ public class IndirectObjectFactory {
 	 * @return	false if there are no objects left to check.
 	 */
 	public boolean storeNextObject() {
+		if (lazy) {
+			current = n;
+			return false;
+		}
 		while (current < n) {
 			current++;
-			PdfObject object = reader.getPdfObjectRelease(current);
+			PdfObject object = scanner.getPdfObjectRelease(current);
 			if (object != null) {
-				int idx = size();
-				idxToRef.put(idx, current);
-				refToIdx.put(current, idx);
-				store(object);
+				if (size == idxToRef.length) {
+					int[] tmp = new int[Math.min(size + (size >> 1), n + 1)];
+					System.arraycopy(idxToRef, 0, tmp, 0, size);
+					idxToRef = tmp;
+				}
+				idxToRef[size] = current;
+				refToIdx[current] = size++;
+				store(current, object);
 				return true;
 			}
 		}
+		trim();
 		return false;
 	}
 	
 	/**
-	 * If we store all the objects, we might run out of memory;
-	 * that's why we'll only store the objects that are necessary
-	 * to construct other objects (for instance the page table).
-	 * @param	object	an object we might want to store 
+	 * Stores the objects that were found by scanning the XRef table
+	 * in another way, for instance with a ParallelObjectScanner.
+	 * The scanner is expected to have recorded the objects in the
+	 * type index of this factory.
+	 * @param refs	the numbers of the objects that exist, in ascending order
+	 */
+	public void storeObjects(int[] refs) {
+		idxToRef = refs;
+		size = refs.length;
+		for (int i = 0; i < size; i++) {
+			refToIdx[refs[i]] = i;
+			if (types.hasType(refs[i], PdfName.PAGE))
+				setPage(refs[i]);
+		}
+		current = n;
+	}
+	
+	/**
+	 * Stores the objects that were found in the next range of object numbers,
+	 * for instance a chunk of a ParallelObjectScanner. The range starts right
+	 * after the last object number that was stored; storeNextObject() carries
+	 * on after the end of the range.
+	 * The scanner is expected to have recorded the objects in the
+	 * type index of this factory.
+	 * @param refs	the numbers of the objects that exist in the range, in ascending order
+	 * @param last	the last object number of the range
+	 */
+	public void storeObjects(int[] refs, int last) {
+		if (size + refs.length > idxToRef.length) {
+			int[] tmp = new int[Math.min(Math.max(size + refs.length, size + (size >> 1)), n + 1)];
+			System.arraycopy(idxToRef, 0, tmp, 0, size);
+			idxToRef = tmp;
+		}
+		for (int ref : refs) {
+			idxToRef[size] = ref;
+			refToIdx[ref] = size++;
+			if (types.hasType(ref, PdfName.PAGE))
+				setPage(ref);
+		}
+		current = last;
+	}
+	
+	/**
+	 * Stores the objects and their descriptors that were found earlier,
+	 * for instance when the PDF file was opened before.
+	 * @param refs	the numbers of the objects that exist, in ascending order
+	 * @param types	the descriptors of these objects
+	 */
+	public void storeObjects(int[] refs, ObjectTypeIndex types) {
+		this.types = types;
+		storeObjects(refs);
+	}
+	
+	/**
+	 * We don't keep the objects while storing them, otherwise we
+	 * might run out of memory; we only remember which objects are
+	 * necessary to construct other objects (for instance the page table)
+	 * and a short description in the type index.
+	 * @param	ref		the reference number of the object
+	 * @param	object	an object we might want to remember
 	 */
-	private void store(PdfObject object) {
+	private void store(int ref, PdfObject object) {
+		types.record(ref, object);
 		if (object.isDictionary()){
 			PdfDictionary dict = (PdfDictionary)object;
 			if (PdfName.PAGE.equals(dict.get(PdfName.TYPE))) {
-				objects.add(dict);
-				return;
+				setPage(ref);
 			}
 		}
-		objects.add(PdfNull.PDFNULL);
+	}
+	
+	/**
+	 * Releases the unused part of the index once all objects are stored.
+	 */
+	private void trim() {
+		if (idxToRef.length > size) {
+			int[] tmp = new int[size];
+			System.arraycopy(idxToRef, 0, tmp, 0, size);
+			idxToRef = tmp;
+		}
+	}
+	
+	/**
+	 * Tells you if an object was found to be a page dictionary
+	 * while storing the objects.
+	 * @param ref	a number in the xref table
+	 * @return	true if the object is a page dictionary
+	 */
+	public boolean isPage(int ref) {
+		synchronized (pages) {
+			return pages.get(ref);
+		}
+	}
+	
+	/**
+	 * Marks an object as a page dictionary.
+	 * @param ref	a number in the xref table
+	 */
+	private void setPage(int ref) {
+		synchronized (pages) {
+			pages.set(ref);
+		}
 	}
 	
 	/**
@@ -144,16 +340,22 @@ public class IndirectObjectFactory {
 	 * @return the total number of indirect objects in the PDF.
 	 */
 	public int size() {
-		return objects.size();
+		if (lazy)
+			return Math.max(n - 1, 0);
+		return size;
 	}
 	
 	/**
 	 * Gets the index of an object based on its number in the xref table.
 	 * @param ref	a number in the xref table
-	 * @return	the index in the list of indirect objects
+	 * @return	the index in the list of indirect objects, or -1 if there's no such object
 	 */
 	public int getIndexByRef(int ref) {
-		return refToIdx.get(ref);
+		if (lazy)
+			return ref - 1;
+		if (ref < 0 || ref >= refToIdx.length)
+			return -1;
+		return refToIdx[ref];
 	}
 	
 	/**
@@ -163,7 +365,9 @@ public class IndirectObjectFactory {
 	 * @return	the corresponding reference number in the xref table
 	 */
 	public int getRefByIndex(int i) {
-		return idxToRef.get(i);
+		if (lazy)
+			return i + 1;
+		return idxToRef[i];
 	}
 	
 	/**
@@ -178,10 +382,13 @@ public class IndirectObjectFactory {
 	/**
 	 * Gets an object based on its reference number in the xref table.
 	 * @param ref	a number in the xref table
-	 * @return	a PDF object
+	 * @return	a PDF object, or PdfNull if the object hasn't been loaded yet
 	 */
 	public PdfObject getObjectByReference(int ref) {
-		return objects.get(getIndexByRef(ref));
+		PdfObject object = kept.get(ref);
+		if (object == null)
+			object = loaded.get(ref);
+		return object == null ? PdfNull.PDFNULL : object;
 	}
 	
 	/**
@@ -192,10 +399,90 @@ public class IndirectObjectFactory {
 	public PdfObject loadObjectByReference(int ref) {
 		PdfObject object = getObjectByReference(ref);
 		if (object instanceof PdfNull) {
-			int idx = getIndexByRef(ref);
-			object = reader.getPdfObject(ref);
-			objects.set(idx, object);
+			// a partial reader would otherwise keep the object forever
+			object = reader.getPdfObjectRelease(ref);
+			// free entries in the xref table don't have an object
+			if (object == null)
+				return PdfNull.PDFNULL;
+			loaded.put(ref, object);
+			if (!types.isRecorded(ref))
+				types.record(ref, object);
 		}
 		return object;
 	}
+
+	/**
+	 * Keeps an object that was changed in the GUI, so that the
+	 * changes aren't lost when the object is released.
+	 * @param ref		the reference number of the object
+	 * @param object	the object that was changed
+	 */
+	public void keepObject(int ref, PdfObject object) {
+		kept.put(ref, object);
+	}
+
+	/**
+	 * Copies the dictionaries and arrays that were kept into the objects
+	 * of the reader, so that the changes are saved when the reader is written.
+	 * The objects of a partial reader that weren't cached yet are cached now.
+	 */
+	public void storeKeptObjects() {
+		for (Map.Entry<Integer, PdfObject> entry : kept.entrySet()) {
+			PdfObject cached = reader.getPdfObject(entry.getKey());
+			PdfObject object = entry.getValue();
+			if (cached == object)
+				continue;
+			if (cached instanceof PdfDictionary && object instanceof PdfDictionary) {
+				PdfDictionary target = (PdfDictionary)cached;
+				PdfDictionary changed = (PdfDictionary)object;
+				for (PdfName key : new ArrayList<PdfName>(target.getKeys())) {
+					if (!changed.contains(key))
+						target.remove(key);
+				}
+				target.putAll(changed);
+			}
+			else if (cached instanceof PdfArray && object instanceof PdfArray) {
+				// the elements that were changed are direct objects inside the kept array
+				PdfArray target = (PdfArray)cached;
+				PdfArray changed = (PdfArray)object;
+				while (target.size() > changed.size())
+					target.remove(target.size() - 1);
+				for (int i = 0; i < changed.size(); i++) {
+					if (i < target.size())
+						target.set(i, changed.getPdfObject(i));
+					else
+						target.add(changed.getPdfObject(i));
+				}
+			}
+		}
+	}
+
+	/**
+	 * The loaded objects, in the order in which they were last used.
+	 */
+	protected static class LoadedObjects extends LinkedHashMap<Integer, PdfObject> {
+
+		/** The maximum number of objects. */
+		protected int max;
+
+		/**
+		 * Creates a map that keeps at most a number of objects.
+		 * @param max	the maximum number of objects
+		 */
+		public LoadedObjects(int max) {
+			super(16, 0.75f, true);
+			this.max = max;
+		}
+
+		/**
+		 * @see java.util.LinkedHashMap#removeEldestEntry(java.util.Map.Entry)
+		 */
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Integer, PdfObject> eldest) {
+			return size() > max;
+		}
+
+		/** A serial version UID. */
+		private static final long serialVersionUID = 6112389705472730564L;
+	}
 }
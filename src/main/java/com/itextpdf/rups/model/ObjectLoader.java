@@ -43,16 +43,29 @@
  */
 package com.itextpdf.rups.model;
 
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.IOException;
+import java.util.List;
 import java.util.Observable;
 
+import javax.swing.SwingUtilities;
+
 import com.itextpdf.text.pdf.PdfReader;
 
 /**
  * Loads the necessary iText PDF objects in Background.
  */
 public class ObjectLoader extends BackgroundTask {
+	/** Sent to the observers when the user cancelled the loading. */
+	public static final String CANCELLED = "Loading cancelled";
+	/** The minimum time between two updates of the rows that have been scanned (in ms). */
+	public static final long PUBLISH_INTERVAL = 250;
+	
 	/** This is the object that will forward the updates to the observers. */
 	protected Observable observable;
+	/** The PDF file (if known), used to scan large files in parallel. */
+	protected PdfFile file;
 	/** iText's PdfReader object. */
 	protected PdfReader reader;
 	/** The factory that can provide PDF objects. */
@@ -61,6 +74,14 @@ public class ObjectLoader extends BackgroundTask {
 	protected TreeNodeFactory nodes;
 	/** a human readable name for this loaded */
 	private String loaderName;
+	/** Indicates if the objects are only parsed when they are asked for. */
+	protected boolean lazy;
+	/** Indicates if the observers are notified before all objects have been scanned. */
+	protected boolean progressive;
+	/** The time at which the rows that have been scanned were last published. */
+	private long lastPublished;
+	/** Indicates if the loading was cancelled with the cancel button. */
+	private volatile boolean cancelledByUser;
 	
 	/**
 	 * Creates a new ObjectLoader.
@@ -68,9 +89,56 @@ public class ObjectLoader extends BackgroundTask {
 	 * @param	reader		the PdfReader from which the objects will be read.
 	 */
 	public ObjectLoader(Observable observable, PdfReader reader, String loaderName) {
+		this(observable, reader, loaderName, false);
+	}
+	
+	/**
+	 * Creates a new ObjectLoader.
+	 * @param	observable	the object that will forward the changes.
+	 * @param	reader		the PdfReader from which the objects will be read.
+	 * @param	lazy		if true, the objects in the xref table aren't parsed
+	 * 						up front; the reader should be a partial reader
+	 */
+	public ObjectLoader(Observable observable, PdfReader reader, String loaderName, boolean lazy) {
 		this.observable = observable;
 		this.reader = reader;
 		this.loaderName = loaderName;
+		this.lazy = lazy;
+		start();
+	}
+	
+	/**
+	 * Creates a new ObjectLoader.
+	 * If the file has many objects, they are scanned in parallel.
+	 * @param	observable	the object that will forward the changes.
+	 * @param	file		the PDF file from which the objects will be read.
+	 * @param	lazy		if true, the objects in the xref table aren't parsed
+	 * 						up front
+	 */
+	public ObjectLoader(Observable observable, PdfFile file, boolean lazy) {
+		this(observable, file, lazy, false);
+	}
+	
+	/**
+	 * Creates a new ObjectLoader.
+	 * If the file has many objects, they are scanned in parallel.
+	 * In progressive mode, the observers are notified on the event dispatching
+	 * thread as soon as the loading starts; the xref table is scanned with
+	 * another PdfReader and the rows that have been scanned are published
+	 * in chunks (see Published).
+	 * @param	observable	the object that will forward the changes.
+	 * @param	file		the PDF file from which the objects will be read.
+	 * @param	lazy		if true, the objects in the xref table aren't parsed
+	 * 						up front
+	 * @param	progressive	if true, the observers don't wait for the scan
+	 */
+	public ObjectLoader(Observable observable, PdfFile file, boolean lazy, boolean progressive) {
+		this.file = file;
+		this.observable = observable;
+		this.reader = file.getPdfReader();
+		this.loaderName = file.getFilename();
+		this.lazy = lazy;
+		this.progressive = progressive && !lazy;
 		start();
 	}
 	
@@ -82,6 +150,14 @@ public class ObjectLoader extends BackgroundTask {
 		return reader;
 	}
 
+	/**
+	 * Getter for the PDF file.
+	 * @return	the PDF file, or null if the loader was created with a PdfReader
+	 */
+	public PdfFile getPdfFile() {
+		return file;
+	}
+
 	/**
 	 * Getter for the object factory.
 	 * @return	an indirect object factory
@@ -98,6 +174,15 @@ public class ObjectLoader extends BackgroundTask {
 		return nodes;
 	}
 	
+	/**
+	 * Tells you if the observers are notified before all objects have been scanned.
+	 * If so, the objects that have been scanned are announced with Published objects.
+	 * @return	true in progressive mode
+	 */
+	public boolean isProgressive() {
+		return progressive;
+	}
+	
 	/**
 	 * getter for a human readable name representing this loader
 	 * @return the human readable name
@@ -113,17 +198,187 @@ public class ObjectLoader extends BackgroundTask {
 	@Override
 	public void doTask() {
 		ProgressDialog progress = new ProgressDialog(null, "Reading PDF file");
-		objects = new IndirectObjectFactory(reader);
+		progress.setCancelAction(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				cancelledByUser = true;
+				cancel();
+			}
+		});
+		objects = new IndirectObjectFactory(reader, lazy);
+		nodes = new TreeNodeFactory(objects);
 		int n = objects.getXRefMaximum();
-		progress.setMessage("Reading the Cross-Reference table");
-		progress.setTotal(n);
-		while (objects.storeNextObject()) {
-			progress.setValue(objects.getCurrent());
+		PdfReader scanner = null;
+		try {
+			if (progressive) {
+				try {
+					// the views use the main reader on the event dispatching thread
+					scanner = file.openReader();
+					objects.setScanner(scanner);
+					SwingUtilities.invokeLater(new Runnable() {
+						public void run() {
+							observable.notifyObservers(ObjectLoader.this);
+						}
+					});
+				}
+				catch(IOException ioe) {
+					ioe.printStackTrace();
+					progressive = false;
+				}
+			}
+			progress.setMessage("Reading the Cross-Reference table");
+			progress.setTotal(n);
+			IndexCache cache = file != null && !lazy ? IndexCache.getDefault() : null;
+			if (cache != null && cache.load(file, objects)) {
+				progress.setMessage("Using the cached index");
+			}
+			else {
+				if (file != null && !lazy && ParallelObjectScanner.isWorthwhile(file, n)) {
+					try {
+						ParallelObjectScanner parallel = new ParallelObjectScanner(file, n, objects.getTypeIndex());
+						if (progressive) {
+							// the rows are published chunk by chunk, the sequential scan finds nothing left
+							parallel.scan(progress, new ParallelObjectScanner.ChunkListener() {
+								public void chunkScanned(int[] refs, int last) {
+									objects.storeObjects(refs, last);
+									publish(false);
+								}
+							});
+						}
+						else {
+							objects.storeObjects(parallel.scan(progress));
+						}
+					}
+					catch(IOException ioe) {
+						// the sequential scan below carries on after the last chunk that was stored
+						if (!isCancelled())
+							ioe.printStackTrace();
+					}
+					catch(RuntimeException re) {
+						// for instance a malformed object; the sequential scan takes over
+						if (!isCancelled())
+							re.printStackTrace();
+					}
+				}
+				while (!isCancelled() && objects.storeNextObject()) {
+					progress.setValue(objects.getCurrent());
+					if (progressive)
+						publish(false);
+				}
+				if (cache != null && !isCancelled()) {
+					final IndexCache c = cache;
+					final IndirectObjectFactory scanned = objects;
+					final PdfFile f = file;
+					TaskScheduler.getInstance().submit(new Runnable() {
+						public void run() {
+							c.store(f, scanned);
+						}
+					}, TaskScheduler.BACKGROUND, null);
+				}
+			}
+			progress.setTotal(0);
+			if (isCancelled()) {
+				// release the partial indexes; the reader is closed with the file
+				objects = null;
+				nodes = null;
+				if (cancelledByUser) {
+					SwingUtilities.invokeLater(new Runnable() {
+						public void run() {
+							observable.notifyObservers(CANCELLED);
+						}
+					});
+				}
+			}
+			else if (progressive) {
+				publish(true);
+				objects.setScanner(reader);
+			}
+			else {
+				progress.setMessage("Updating GUI");
+				observable.notifyObservers(this);
+			}
+		}
+		finally {
+			if (scanner != null)
+				scanner.close();
+			progress.dispose();
+		}
+	}
+	
+	/**
+	 * Stops loading the objects. The observers aren't notified
+	 * of objects that haven't been published yet.
+	 */
+	public void cancel() {
+		interrupt();
+	}
+	
+	/**
+	 * Tells you if the loading was cancelled.
+	 * @return	true if cancel() was called
+	 */
+	public boolean isCancelled() {
+		return isInterrupted();
+	}
+	
+	/**
+	 * Publishes the rows that have been scanned to the observers,
+	 * at most once per PUBLISH_INTERVAL.
+	 * @param finished	true if all the objects have been scanned
+	 */
+	protected void publish(boolean finished) {
+		long now = System.currentTimeMillis();
+		if (!finished && now - lastPublished < PUBLISH_INTERVAL)
+			return;
+		lastPublished = now;
+		publish(new Published(this, objects.size(), finished));
+	}
+	
+	/**
+	 * Only the most recent rows that were published are passed to the observers.
+	 * @see com.itextpdf.rups.model.BackgroundTask#process(java.util.List)
+	 */
+	@Override
+	protected void process(List<Object> chunks) {
+		observable.notifyObservers(chunks.get(chunks.size() - 1));
+	}
+	
+	/**
+	 * Tells the observers of a progressive ObjectLoader how many
+	 * rows of the IndirectObjectFactory have been scanned.
+	 */
+	public static class Published {
+		/** The loader that is scanning the objects. */
+		protected ObjectLoader loader;
+		/** The number of rows that have been scanned. */
+		protected int rows;
+		/** Indicates if all the objects have been scanned. */
+		protected boolean finished;
+		
+		/**
+		 * Creates a notification.
+		 * @param loader	the loader that is scanning the objects
+		 * @param rows		the number of rows that have been scanned
+		 * @param finished	true if all the objects have been scanned
+		 */
+		public Published(ObjectLoader loader, int rows, boolean finished) {
+			this.loader = loader;
+			this.rows = rows;
+			this.finished = finished;
+		}
+		
+		/** @return the loader that is scanning the objects */
+		public ObjectLoader getLoader() {
+			return loader;
+		}
+		
+		/** @return the number of rows that have been scanned */
+		public int getRows() {
+			return rows;
+		}
+		
+		/** @return true if all the objects have been scanned */
+		public boolean isFinished() {
+			return finished;
 		}
-		progress.setTotal(0);
-		nodes = new TreeNodeFactory(objects);
-		progress.setMessage("Updating GUI");
-		observable.notifyObservers(this);
-		progress.dispose();
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,446 @@
+/*
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 2007-2015 iText Group NV
+ * Authors: Bruno Lowagie et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.rups.model;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.itextpdf.text.pdf.PdfArray;
+import com.itextpdf.text.pdf.PdfDictionary;
+import com.itextpdf.text.pdf.PdfName;
+import com.itextpdf.text.pdf.PdfObject;
+import com.itextpdf.text.pdf.PdfReader;
+
+/**
+ * Searches the indirect objects of a PDF file for a key or a value,
+ * in the background and with a PdfReader of its own, so that no tree
+ * nodes are created for the objects that are searched. Every object is
+ * searched once (references aren't followed); the hits are published
+ * while the search is running.
+ * A query such as "/Type /Font", "/Subtype /Image" or "/Filter /DCTDecode"
+ * looks for that exact name in the entry of the indirect objects themselves;
+ * it is answered from the ObjectTypeIndex, so only the objects that weren't
+ * described yet are parsed.
+ */
+public class ObjectSearch extends BackgroundTask {
+
+	/** The maximum number of hits; the search stops when it is reached. */
+	public static final int MAX_HITS = 10000;
+	/** The maximum length of the value that is shown with a hit. */
+	public static final int MAX_VALUE = 100;
+	/** A query for a /Type, a /Subtype or a /Filter. */
+	protected static final Pattern DESCRIPTOR_QUERY = Pattern.compile("/(type|subtype|filter)\\s+(/?\\S+)");
+
+	/**
+	 * Receives the results of a search on the event dispatching thread.
+	 */
+	public interface HitListener {
+		/**
+		 * Called with the hits that were found since the previous call.
+		 * @param search	the search that found the hits
+		 * @param hits		the hits, in the order of the objects
+		 */
+		void hitsFound(ObjectSearch search, List<Hit> hits);
+
+		/**
+		 * Called when the search has finished (unless it was cancelled).
+		 * @param search	the search that has finished
+		 */
+		void searchFinished(ObjectSearch search);
+	}
+
+	/** The PDF file that is searched. */
+	protected PdfFile file;
+	/** The index of the indirect objects that are searched. */
+	protected IndirectObjectFactory objects;
+	/** The text to look for, in lower case. */
+	protected String query;
+	/** The key of a descriptor query (/Type, /Subtype or /Filter), or null for a text query. */
+	protected PdfName descriptor;
+	/** The name that is looked for in a descriptor query, with a slash and in lower case. */
+	protected String name;
+	/** The listener that receives the hits. */
+	protected HitListener listener;
+	/** The number of hits so far. */
+	protected volatile int hits;
+	/** The number of objects that have been searched. */
+	protected volatile int searched;
+	/** The problem that stopped the search, if any. */
+	protected volatile String error;
+
+	/**
+	 * Creates and starts a search.
+	 * @param file		the PDF file to search
+	 * @param objects	the index of the indirect objects of the file
+	 * @param query		the text to look for in keys and values (not case sensitive)
+	 * @param listener	the listener that receives the hits
+	 */
+	public ObjectSearch(PdfFile file, IndirectObjectFactory objects, String query, HitListener listener) {
+		super(TaskScheduler.BACKGROUND);
+		this.file = file;
+		this.objects = objects;
+		this.query = query.toLowerCase();
+		this.listener = listener;
+		Matcher m = DESCRIPTOR_QUERY.matcher(this.query);
+		if (m.matches()) {
+			if ("type".equals(m.group(1)))
+				descriptor = PdfName.TYPE;
+			else if ("subtype".equals(m.group(1)))
+				descriptor = PdfName.SUBTYPE;
+			else
+				descriptor = PdfName.FILTER;
+			name = m.group(2).startsWith("/") ? m.group(2) : "/" + m.group(2);
+		}
+		start();
+	}
+
+	/**
+	 * Getter for the number of hits.
+	 * @return	the number of hits found so far
+	 */
+	public int getHits() {
+		return hits;
+	}
+
+	/**
+	 * Getter for the number of objects that have been searched.
+	 * @return	a number of objects
+	 */
+	public int getSearched() {
+		return searched;
+	}
+
+	/**
+	 * Tells you if the search stopped because MAX_HITS hits were found.
+	 * @return	true if there may be more hits
+	 */
+	public boolean isTruncated() {
+		return hits >= MAX_HITS;
+	}
+
+	/**
+	 * Getter for the problem that stopped the search.
+	 * @return	an error message, or null
+	 */
+	public String getError() {
+		return error;
+	}
+
+	/**
+	 * @see com.itextpdf.rups.model.BackgroundTask#doTask()
+	 */
+	@Override
+	public void doTask() {
+		PdfReader reader = null;
+		try {
+			ObjectTypeIndex types = objects.getTypeIndex();
+			int count = objects.size();
+			for (int i = 0; i < count && hits < MAX_HITS && !isInterrupted(); i++) {
+				int ref = objects.getRefByIndex(i);
+				if (descriptor != null && types.isRecorded(ref)) {
+					searchDescriptor(ref, types);
+				}
+				else {
+					// the reader is only opened once an object has to be parsed
+					if (reader == null)
+						reader = file.openReader();
+					PdfObject object = reader.getPdfObjectRelease(ref);
+					if (object != null && descriptor != null)
+						searchEntry(ref, object);
+					else if (object != null)
+						search(ref, object);
+				}
+				searched = i + 1;
+			}
+		}
+		catch(IOException ioe) {
+			error = ioe.getMessage();
+		}
+		finally {
+			if (reader != null)
+				reader.close();
+		}
+	}
+
+	/**
+	 * Answers a descriptor query for an object from the type index.
+	 * @param ref	the number of the indirect object
+	 * @param types	the type index with a descriptor of the object
+	 */
+	protected void searchDescriptor(int ref, ObjectTypeIndex types) {
+		String value;
+		if (PdfName.TYPE.equals(descriptor))
+			value = types.getType(ref);
+		else if (PdfName.SUBTYPE.equals(descriptor))
+			value = types.getSubtype(ref);
+		else
+			value = types.getFilter(ref);
+		if (matchesName(value))
+			hit(ref, new Object[] { descriptor }, value);
+	}
+
+	/**
+	 * Answers a descriptor query for an object that isn't in the type index.
+	 * @param ref		the number of the indirect object
+	 * @param object	the indirect object
+	 */
+	protected void searchEntry(int ref, PdfObject object) {
+		if (!(object instanceof PdfDictionary))
+			return;
+		PdfObject value = ((PdfDictionary)object).get(descriptor);
+		String names = PdfName.FILTER.equals(descriptor)
+				? ObjectTypeIndex.getFilterChain(value)
+				: value != null && value.isName() ? value.toString() : null;
+		if (matchesName(names))
+			hit(ref, new Object[] { descriptor }, value);
+	}
+
+	/**
+	 * Checks if the name of a descriptor query is one of a number of names.
+	 * @param names	names separated by spaces (a /Filter chain), or null
+	 * @return	true if one of the names is the name that is looked for (not case sensitive)
+	 */
+	protected boolean matchesName(String names) {
+		if (names == null)
+			return false;
+		for (String n : names.split(" ")) {
+			if (n.equalsIgnoreCase(name))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Searches the keys and values of an object, and those of the
+	 * direct objects inside it, without recursion.
+	 * @param ref		the number of the indirect object
+	 * @param object	the indirect object
+	 */
+	protected void search(int ref, PdfObject object) {
+		List<PdfObject> stack = new ArrayList<PdfObject>();
+		List<Object[]> paths = new ArrayList<Object[]>();
+		stack.add(object);
+		paths.add(new Object[0]);
+		if (matches(object))
+			hit(ref, new Object[0], object);
+		while (!stack.isEmpty() && hits < MAX_HITS) {
+			PdfObject current = stack.remove(stack.size() - 1);
+			Object[] path = paths.remove(paths.size() - 1);
+			if (current instanceof PdfDictionary) {
+				PdfDictionary dict = (PdfDictionary)current;
+				for (PdfName key : dict.getKeys()) {
+					PdfObject value = dict.get(key);
+					Object[] p = append(path, key);
+					if (matches(key.toString()) || matches(value))
+						hit(ref, p, value);
+					if (value instanceof PdfDictionary || value instanceof PdfArray) {
+						stack.add(value);
+						paths.add(p);
+					}
+				}
+			}
+			else if (current instanceof PdfArray) {
+				PdfArray array = (PdfArray)current;
+				for (int i = 0; i < array.size(); i++) {
+					PdfObject value = array.getPdfObject(i);
+					Object[] p = append(path, Integer.valueOf(i));
+					if (matches(value))
+						hit(ref, p, value);
+					if (value instanceof PdfDictionary || value instanceof PdfArray) {
+						stack.add(value);
+						paths.add(p);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds a step to a path.
+	 * @param path	dictionary keys and array indexes
+	 * @param step	a PdfName or an Integer
+	 * @return	a new path
+	 */
+	protected static Object[] append(Object[] path, Object step) {
+		Object[] p = new Object[path.length + 1];
+		System.arraycopy(path, 0, p, 0, path.length);
+		p[path.length] = step;
+		return p;
+	}
+
+	/**
+	 * Checks if a simple object (a name, string, number,...) matches the query.
+	 * @param object	a PDF object
+	 * @return	true if the object isn't a container and matches the query
+	 */
+	protected boolean matches(PdfObject object) {
+		if (object == null || object instanceof PdfDictionary || object instanceof PdfArray)
+			return false;
+		return matches(object.toString());
+	}
+
+	/**
+	 * Checks if a text matches the query.
+	 * @param text	a key or a value
+	 * @return	true if the text contains the query (not case sensitive)
+	 */
+	protected boolean matches(String text) {
+		return text.toLowerCase().indexOf(query) > -1;
+	}
+
+	/**
+	 * Publishes a hit.
+	 * @param ref	the number of the indirect object
+	 * @param path	the keys (PdfName) and indexes (Integer) that lead to the value
+	 * @param value	the value
+	 */
+	protected void hit(int ref, Object[] path, PdfObject value) {
+		hit(ref, path, describe(value));
+	}
+
+	/**
+	 * Publishes a hit.
+	 * @param ref	the number of the indirect object
+	 * @param path	the keys (PdfName) and indexes (Integer) that lead to the value
+	 * @param value	a description of the value
+	 */
+	protected void hit(int ref, Object[] path, String value) {
+		hits++;
+		publish(new Hit(ref, path, value));
+	}
+
+	/**
+	 * Describes a value in a few words.
+	 * @param value	a PDF object
+	 * @return	a short description
+	 */
+	protected static String describe(PdfObject value) {
+		if (value == null)
+			return "null";
+		if (value.isStream())
+			return "stream";
+		if (value instanceof PdfDictionary)
+			return "dictionary";
+		if (value instanceof PdfArray)
+			return "array";
+		String s = value.toString();
+		if (s.length() > MAX_VALUE)
+			return s.substring(0, MAX_VALUE) + "...";
+		return s;
+	}
+
+	/**
+	 * @see com.itextpdf.rups.model.BackgroundTask#process(java.util.List)
+	 */
+	@Override
+	protected void process(List<Object> chunks) {
+		List<Hit> found = new ArrayList<Hit>(chunks.size());
+		for (Object chunk : chunks)
+			found.add((Hit)chunk);
+		listener.hitsFound(this, found);
+	}
+
+	/**
+	 * @see com.itextpdf.rups.model.BackgroundTask#finished()
+	 */
+	@Override
+	public void finished() {
+		if (!isInterrupted())
+			listener.searchFinished(this);
+	}
+
+	/**
+	 * A key or value that matches the query.
+	 */
+	public static class Hit {
+		/** The number of the indirect object. */
+		protected int ref;
+		/** The keys (PdfName) and indexes (Integer) that lead to the value. */
+		protected Object[] steps;
+		/** A description of the value. */
+		protected String value;
+
+		/**
+		 * Creates a hit.
+		 * @param ref	the number of the indirect object
+		 * @param steps	the keys (PdfName) and indexes (Integer) that lead to the value
+		 * @param value	a description of the value
+		 */
+		public Hit(int ref, Object[] steps, String value) {
+			this.ref = ref;
+			this.steps = steps;
+			this.value = value;
+		}
+
+		/** @return the number of the indirect object */
+		public int getRef() {
+			return ref;
+		}
+
+		/** @return the keys and indexes that lead to the value, for instance /Resources/Font */
+		public String getPath() {
+			StringBuffer buf = new StringBuffer();
+			for (Object step : steps) {
+				if (step instanceof Integer)
+					buf.append('[').append(step).append(']');
+				else
+					buf.append(step);
+			}
+			return buf.toString();
+		}
+
+		/** @return the keys (PdfName) and indexes (Integer) that lead to the value */
+		public Object[] getSteps() {
+			return steps;
+		}
+
+		/** @return a description of the value */
+		public String getValue() {
+			return value;
+		}
+	}
+}
@@ -0,0 +1,439 @@
+/*
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 2007-2015 iText Group NV
+ * Authors: Bruno Lowagie et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.rups.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+import com.itextpdf.text.pdf.PRStream;
+import com.itextpdf.text.pdf.PdfArray;
+import com.itextpdf.text.pdf.PdfDictionary;
+import com.itextpdf.text.pdf.PdfName;
+import com.itextpdf.text.pdf.PdfObject;
+
+/**
+ * A compact description of every indirect object in a PDF file:
+ * the kind of object, its /Type and /Subtype and, for streams,
+ * the /Filter chain and the /Length. The descriptors are recorded
+ * while the objects are scanned, so that questions such as "how many
+ * images are there and how big are they" can be answered without
+ * loading the objects again.
+ * Names are stored once in a table; the descriptors themselves are
+ * primitive arrays indexed by object number. Different threads may
+ * record different object numbers at the same time.
+ */
+public class ObjectTypeIndex {
+
+	/** The kind of an object that hasn't been recorded. */
+	public static final byte UNKNOWN = 0;
+	/** The kind of an object that is a dictionary. */
+	public static final byte DICTIONARY = 1;
+	/** The kind of an object that is a stream. */
+	public static final byte STREAM = 2;
+	/** The kind of an object that is an array. */
+	public static final byte ARRAY = 3;
+	/** The kind of any other object. */
+	public static final byte OTHER = 4;
+
+	/** The names that are used in the descriptors; index 0 means no name. */
+	protected ArrayList<String> names = new ArrayList<String>();
+	/** Mapping between a name and its index in the list of names. */
+	protected HashMap<String, Integer> nameIndex = new HashMap<String, Integer>();
+	/** The kind of every object. */
+	protected byte[] kinds;
+	/** The index of the /Type of every object. */
+	protected short[] types;
+	/** The index of the /Subtype of every object. */
+	protected short[] subtypes;
+	/** The index of the /Filter chain of every stream. */
+	protected short[] filters;
+	/** The /Length of every stream (-1 if it isn't a stream). */
+	protected int[] lengths;
+
+	/**
+	 * Creates an empty index.
+	 * @param n	the highest object number in the xref table
+	 */
+	public ObjectTypeIndex(int n) {
+		names.add(null);
+		kinds = new byte[n + 1];
+		types = new short[n + 1];
+		subtypes = new short[n + 1];
+		filters = new short[n + 1];
+		lengths = new int[n + 1];
+	}
+
+	/**
+	 * Gets the highest object number that can be recorded.
+	 * @return	an object number
+	 */
+	public int getXRefMaximum() {
+		return kinds.length - 1;
+	}
+
+	/**
+	 * Records the descriptor of an object.
+	 * @param ref		the number of the object in the xref table
+	 * @param object	the object
+	 */
+	public void record(int ref, PdfObject object) {
+		if (ref < 0 || ref >= kinds.length || object == null)
+			return;
+		lengths[ref] = -1;
+		if (object.isDictionary() || object.isStream()) {
+			PdfDictionary dict = (PdfDictionary)object;
+			types[ref] = intern(dict.get(PdfName.TYPE));
+			subtypes[ref] = intern(dict.get(PdfName.SUBTYPE));
+			if (object.isStream()) {
+				kinds[ref] = STREAM;
+				filters[ref] = intern(getFilterChain(dict.get(PdfName.FILTER)));
+				if (object instanceof PRStream)
+					lengths[ref] = ((PRStream)object).getLength();
+			}
+			else {
+				kinds[ref] = DICTIONARY;
+			}
+		}
+		else if (object.isArray()) {
+			kinds[ref] = ARRAY;
+		}
+		else {
+			kinds[ref] = OTHER;
+		}
+	}
+
+	/**
+	 * Turns the value of a /Filter entry into a String.
+	 * @param filter	a name, an array of names, or null
+	 * @return	the filter names separated by spaces, or null if there's no filter
+	 */
+	protected static String getFilterChain(PdfObject filter) {
+		if (filter == null)
+			return null;
+		if (filter.isName())
+			return filter.toString();
+		if (filter.isArray()) {
+			PdfArray array = (PdfArray)filter;
+			if (array.isEmpty())
+				return null;
+			StringBuffer buf = new StringBuffer();
+			for (PdfObject name : array) {
+				if (buf.length() > 0)
+					buf.append(' ');
+				buf.append(name);
+			}
+			return buf.toString();
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the index of a name in the table, adding it if necessary.
+	 * Only names and strings of names are interned; indirect references
+	 * aren't resolved, as that would load other objects.
+	 * @param value	a PdfName, a String or null
+	 * @return	the index of the name, or 0 if there's no name
+	 */
+	protected synchronized short intern(Object value) {
+		if (value == null)
+			return 0;
+		if (value instanceof PdfObject && !((PdfObject)value).isName())
+			return 0;
+		String name = value.toString();
+		Integer idx = nameIndex.get(name);
+		if (idx == null) {
+			if (names.size() > Short.MAX_VALUE)
+				return 0;
+			idx = names.size();
+			names.add(name);
+			nameIndex.put(name, idx);
+		}
+		return idx.shortValue();
+	}
+
+	/**
+	 * Gets a name from the table.
+	 * @param idx	the index of a name
+	 * @return	a name, or null
+	 */
+	protected synchronized String getName(short idx) {
+		return names.get(idx);
+	}
+
+	/**
+	 * Tells you if an object has been recorded.
+	 * @param ref	the number of the object in the xref table
+	 * @return	true if there's a descriptor for the object
+	 */
+	public boolean isRecorded(int ref) {
+		return getKind(ref) != UNKNOWN;
+	}
+
+	/**
+	 * Gets the kind of an object.
+	 * @param ref	the number of the object in the xref table
+	 * @return	one of UNKNOWN, DICTIONARY, STREAM, ARRAY or OTHER
+	 */
+	public byte getKind(int ref) {
+		if (ref < 0 || ref >= kinds.length)
+			return UNKNOWN;
+		return kinds[ref];
+	}
+
+	/**
+	 * Gets the /Type of an object.
+	 * @param ref	the number of the object in the xref table
+	 * @return	a name such as /Page, or null
+	 */
+	public String getType(int ref) {
+		if (getKind(ref) == UNKNOWN)
+			return null;
+		return getName(types[ref]);
+	}
+
+	/**
+	 * Gets the /Subtype of an object.
+	 * @param ref	the number of the object in the xref table
+	 * @return	a name such as /Image, or null
+	 */
+	public String getSubtype(int ref) {
+		if (getKind(ref) == UNKNOWN)
+			return null;
+		return getName(subtypes[ref]);
+	}
+
+	/**
+	 * Gets the /Filter chain of a stream.
+	 * @param ref	the number of the object in the xref table
+	 * @return	the names of the filters separated by spaces, or null
+	 */
+	public String getFilter(int ref) {
+		if (getKind(ref) == UNKNOWN)
+			return null;
+		return getName(filters[ref]);
+	}
+
+	/**
+	 * Gets the /Length of a stream.
+	 * @param ref	the number of the object in the xref table
+	 * @return	the length of the stream, or -1 if the object isn't a stream
+	 */
+	public int getLength(int ref) {
+		if (getKind(ref) != STREAM)
+			return -1;
+		return lengths[ref];
+	}
+
+	/**
+	 * Tells you if an object has a specific /Type.
+	 * @param ref	the number of the object in the xref table
+	 * @param type	a type such as PdfName.PAGE
+	 * @return	true if the object has that /Type
+	 */
+	public boolean hasType(int ref, PdfName type) {
+		return type.toString().equals(getType(ref));
+	}
+
+	/**
+	 * Finds all the objects with a specific /Type and /Subtype.
+	 * @param type		the /Type, or null for any type
+	 * @param subtype	the /Subtype, or null for any subtype
+	 * @return	the numbers of the objects, in ascending order
+	 */
+	public int[] find(PdfName type, PdfName subtype) {
+		String t = type == null ? null : type.toString();
+		String s = subtype == null ? null : subtype.toString();
+		int[] found = new int[16];
+		int count = 0;
+		for (int ref = 0; ref < kinds.length; ref++) {
+			if (kinds[ref] == UNKNOWN)
+				continue;
+			if (t != null && !t.equals(getName(types[ref])))
+				continue;
+			if (s != null && !s.equals(getName(subtypes[ref])))
+				continue;
+			if (count == found.length) {
+				int[] tmp = new int[count * 2];
+				System.arraycopy(found, 0, tmp, 0, count);
+				found = tmp;
+			}
+			found[count++] = ref;
+		}
+		int[] result = new int[count];
+		System.arraycopy(found, 0, result, 0, count);
+		return result;
+	}
+
+	/**
+	 * Counts the objects and the stream bytes per /Type and /Subtype,
+	 * and the streams and their bytes per /Filter chain.
+	 * @return	a list of summary rows, types first, then filters
+	 */
+	public List<Summary> summarize() {
+		HashMap<String, Summary> byType = new HashMap<String, Summary>();
+		HashMap<String, Summary> byFilter = new HashMap<String, Summary>();
+		for (int ref = 0; ref < kinds.length; ref++) {
+			byte kind = kinds[ref];
+			if (kind == UNKNOWN)
+				continue;
+			StringBuffer key = new StringBuffer(getKindName(kind));
+			String type = getName(types[ref]);
+			if (type != null)
+				key.append(' ').append(type);
+			String subtype = getName(subtypes[ref]);
+			if (subtype != null)
+				key.append(' ').append(subtype);
+			long bytes = kind == STREAM ? Math.max(lengths[ref], 0) : 0;
+			add(byType, Summary.TYPE, key.toString(), bytes);
+			if (kind == STREAM) {
+				String filter = getName(filters[ref]);
+				add(byFilter, Summary.FILTER, filter == null ? "(none)" : filter, bytes);
+			}
+		}
+		ArrayList<Summary> result = new ArrayList<Summary>(byType.values());
+		sort(result);
+		ArrayList<Summary> filters = new ArrayList<Summary>(byFilter.values());
+		sort(filters);
+		result.addAll(filters);
+		return result;
+	}
+
+	/**
+	 * Adds an object to a summary row.
+	 */
+	private static void add(HashMap<String, Summary> map, String group, String key, long bytes) {
+		Summary summary = map.get(key);
+		if (summary == null) {
+			summary = new Summary(group, key);
+			map.put(key, summary);
+		}
+		summary.count++;
+		summary.bytes += bytes;
+	}
+
+	/**
+	 * Sorts summary rows: the most objects first.
+	 */
+	private static void sort(List<Summary> list) {
+		Collections.sort(list, new Comparator<Summary>() {
+			public int compare(Summary s1, Summary s2) {
+				if (s1.count != s2.count)
+					return s1.count > s2.count ? -1 : 1;
+				return s1.name.compareTo(s2.name);
+			}
+		});
+	}
+
+	/**
+	 * Gets a readable name for a kind of object.
+	 * @param kind	one of DICTIONARY, STREAM, ARRAY or OTHER
+	 * @return	a name
+	 */
+	public static String getKindName(byte kind) {
+		switch (kind) {
+		case DICTIONARY:
+			return "Dictionary";
+		case STREAM:
+			return "Stream";
+		case ARRAY:
+			return "Array";
+		case OTHER:
+			return "Other";
+		default:
+			return "Unknown";
+		}
+	}
+
+	/**
+	 * A row in the summary of the index.
+	 */
+	public static class Summary {
+		/** The group of rows that counts objects by type. */
+		public static final String TYPE = "Type";
+		/** The group of rows that counts streams by filter. */
+		public static final String FILTER = "Filter";
+
+		/** The group this row belongs to. */
+		protected String group;
+		/** The kind, type and subtype, or the filter chain. */
+		protected String name;
+		/** The number of objects. */
+		protected int count;
+		/** The total /Length of the streams. */
+		protected long bytes;
+
+		/**
+		 * Creates an empty summary row.
+		 * @param group	TYPE or FILTER
+		 * @param name	the name of the row
+		 */
+		public Summary(String group, String name) {
+			this.group = group;
+			this.name = name;
+		}
+
+		/** @return the group (TYPE or FILTER) */
+		public String getGroup() {
+			return group;
+		}
+
+		/** @return the name of the row */
+		public String getName() {
+			return name;
+		}
+
+		/** @return the number of objects */
+		public int getCount() {
+			return count;
+		}
+
+		/** @return the total number of stream bytes */
+		public long getBytes() {
+			return bytes;
+		}
+	}
+}
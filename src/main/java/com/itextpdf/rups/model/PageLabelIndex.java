@@ -0,0 +1,120 @@
+/*
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 2007-2015 iText Group NV
+ * Authors: Bruno Lowagie et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.rups.model;
+
+import com.itextpdf.text.factories.RomanAlphabetFactory;
+import com.itextpdf.text.factories.RomanNumberFactory;
+import com.itextpdf.text.pdf.PdfPageLabels;
+import com.itextpdf.text.pdf.PdfReader;
+
+/**
+ * Computes the label of a page when it's asked for, from the page label
+ * ranges in the catalog, instead of creating the labels of all pages.
+ */
+public class PageLabelIndex {
+
+	/** The page label ranges, ordered by their first page (null if there are no labels). */
+	protected PdfPageLabels.PdfPageLabelFormat[] formats;
+
+	/**
+	 * Reads the page label ranges of a document.
+	 * @param reader	the reader of the document
+	 */
+	public PageLabelIndex(PdfReader reader) {
+		formats = PdfPageLabels.getPageLabelFormats(reader);
+		if (formats != null && formats.length == 0)
+			formats = null;
+	}
+
+	/**
+	 * Tells you if the document has page labels.
+	 * @return	true if there are page label ranges
+	 */
+	public boolean hasLabels() {
+		return formats != null;
+	}
+
+	/**
+	 * Gets the label of a page.
+	 * @param page	a page number (the first page is 1)
+	 * @return	the page label, or null if the page doesn't have a label
+	 */
+	public String getLabel(int page) {
+		if (formats == null)
+			return null;
+		// the last range that starts at or before the page
+		int low = 0;
+		int high = formats.length - 1;
+		int found = -1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (formats[mid].physicalPage <= page) {
+				found = mid;
+				low = mid + 1;
+			}
+			else {
+				high = mid - 1;
+			}
+		}
+		if (found < 0)
+			return null;
+		PdfPageLabels.PdfPageLabelFormat format = formats[found];
+		String prefix = format.prefix == null ? "" : format.prefix;
+		int number = format.logicalPage + page - format.physicalPage;
+		switch (format.numberStyle) {
+		case PdfPageLabels.UPPERCASE_ROMAN_NUMERALS:
+			return prefix + RomanNumberFactory.getUpperCaseString(number);
+		case PdfPageLabels.LOWERCASE_ROMAN_NUMERALS:
+			return prefix + RomanNumberFactory.getLowerCaseString(number);
+		case PdfPageLabels.UPPERCASE_LETTERS:
+			return prefix + RomanAlphabetFactory.getUpperCaseString(number);
+		case PdfPageLabels.LOWERCASE_LETTERS:
+			return prefix + RomanAlphabetFactory.getLowerCaseString(number);
+		case PdfPageLabels.EMPTY:
+			return prefix;
+		default:
+			return prefix + number;
+		}
+	}
+}
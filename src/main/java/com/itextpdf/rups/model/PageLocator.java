@@ -0,0 +1,253 @@
+/*
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 2007-2015 iText Group NV
+ * Authors: Bruno Lowagie et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.rups.model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.itextpdf.text.pdf.PdfArray;
+import com.itextpdf.text.pdf.PdfDictionary;
+import com.itextpdf.text.pdf.PdfIndirectReference;
+import com.itextpdf.text.pdf.PdfName;
+import com.itextpdf.text.pdf.PdfNumber;
+import com.itextpdf.text.pdf.PdfObject;
+import com.itextpdf.text.pdf.PdfReader;
+
+/**
+ * Finds the page dictionary of a page number by descending the page tree,
+ * using the /Count of the intermediate nodes, instead of enumerating all
+ * the pages. In a balanced page tree, only about log(n) intermediate nodes
+ * are read; the nodes that were read are cached. The kids of a node are
+ * only read up to the kid with the page; if the /Count of a node says
+ * that every kid is a page, only the kid with the page is read.
+ */
+public class PageLocator {
+
+	/** The number of intermediate nodes that are cached. */
+	public static final int CACHE_SIZE = 64;
+	/** The maximum depth of the page tree (to stop at loops). */
+	public static final int MAX_DEPTH = 64;
+
+	/** The reader of the document. */
+	protected PdfReader reader;
+	/** The intermediate nodes that were read, by object number. */
+	protected Map<Integer, Kids> cache = new LinkedHashMap<Integer, Kids>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Integer, Kids> eldest) {
+			return size() > CACHE_SIZE;
+		}
+		private static final long serialVersionUID = 3904418384731540652L;
+	};
+
+	/**
+	 * Creates a page locator.
+	 * @param reader	the reader of the document
+	 */
+	public PageLocator(PdfReader reader) {
+		this.reader = reader;
+	}
+
+	/**
+	 * Finds the page dictionary of a page.
+	 * @param pageNumber	a page number (the first page is 1)
+	 * @return	the object number of the page dictionary, or -1 if there's no such page
+	 */
+	public int locate(int pageNumber) {
+		if (pageNumber < 1)
+			return -1;
+		PdfObject node = reader.getCatalog().get(PdfName.PAGES);
+		int remaining = pageNumber - 1;
+		for (int depth = 0; depth < MAX_DEPTH && node instanceof PdfIndirectReference; depth++) {
+			int ref = ((PdfIndirectReference)node).getNumber();
+			Kids kids = getKids(ref);
+			if (kids == null)
+				return remaining == 0 ? ref : -1;
+			if (kids.count == kids.refs.length && remaining < kids.count) {
+				int page = getPage(kids.refs[remaining]);
+				if (page > -1)
+					return page;
+			}
+			int i = find(kids, remaining);
+			if (i < 0)
+				return -1;
+			if (i > 0)
+				remaining -= kids.ends[i - 1];
+			node = kids.refs[i];
+		}
+		return -1;
+	}
+
+	/**
+	 * Gets the kids of an intermediate node. The number of pages
+	 * under each kid is only known once the kid was read (see find()).
+	 * @param ref	the object number of a node of the page tree
+	 * @return	the kids, or null if the node is a page
+	 */
+	protected Kids getKids(int ref) {
+		Kids kids = cache.get(ref);
+		if (kids != null)
+			return kids;
+		PdfDictionary dict = asDictionary(reader.getPdfObjectRelease(ref));
+		if (dict == null || !isIntermediate(dict))
+			return null;
+		PdfArray array = dict.getAsArray(PdfName.KIDS);
+		kids = new Kids(array.size());
+		for (int i = 0; i < array.size(); i++) {
+			kids.refs[i] = array.getPdfObject(i);
+		}
+		PdfNumber count = dict.getAsNumber(PdfName.COUNT);
+		kids.count = count == null ? -1 : count.intValue();
+		cache.put(ref, kids);
+		return kids;
+	}
+
+	/**
+	 * Finds the kid with a page, reading the kids up to that kid.
+	 * @param kids	the kids of an intermediate node
+	 * @param page	the index of a page under the node (the first page is 0)
+	 * @return	the index of the kid with the page, or -1 if the node has fewer pages
+	 */
+	protected int find(Kids kids, int page) {
+		while (kids.resolved < kids.refs.length
+				&& (kids.resolved == 0 || kids.ends[kids.resolved - 1] <= page)) {
+			int total = kids.resolved == 0 ? 0 : kids.ends[kids.resolved - 1];
+			kids.ends[kids.resolved] = total + countPages(kids.refs[kids.resolved]);
+			kids.resolved++;
+		}
+		return kids.find(page);
+	}
+
+	/**
+	 * Gets the number of pages under a kid.
+	 * @param kid	a reference to a node of the page tree
+	 * @return	the /Count of an intermediate node, 1 for a page
+	 */
+	protected int countPages(PdfObject kid) {
+		if (!(kid instanceof PdfIndirectReference))
+			return 0;
+		PdfDictionary dict = asDictionary(reader.getPdfObjectRelease(((PdfIndirectReference)kid).getNumber()));
+		if (dict == null)
+			return 0;
+		if (!isIntermediate(dict))
+			return 1;
+		PdfNumber count = dict.getAsNumber(PdfName.COUNT);
+		return count == null ? 0 : Math.max(0, count.intValue());
+	}
+
+	/**
+	 * Checks if a kid is a page.
+	 * @param kid	a reference to a node of the page tree
+	 * @return	the object number of the page, or -1 if the kid isn't a page
+	 */
+	protected int getPage(PdfObject kid) {
+		if (!(kid instanceof PdfIndirectReference))
+			return -1;
+		int ref = ((PdfIndirectReference)kid).getNumber();
+		PdfDictionary dict = asDictionary(reader.getPdfObjectRelease(ref));
+		return dict == null || isIntermediate(dict) ? -1 : ref;
+	}
+
+	/**
+	 * Tells you if a node of the page tree is an intermediate node.
+	 * @param dict	a node of the page tree
+	 * @return	true if the node has kids and isn't a page
+	 */
+	protected static boolean isIntermediate(PdfDictionary dict) {
+		return dict.getAsArray(PdfName.KIDS) != null && !PdfName.PAGE.equals(dict.get(PdfName.TYPE));
+	}
+
+	/**
+	 * Casts an object to a dictionary.
+	 * @param object	a PDF object
+	 * @return	the dictionary, or null if the object isn't a dictionary
+	 */
+	protected static PdfDictionary asDictionary(PdfObject object) {
+		return object instanceof PdfDictionary ? (PdfDictionary)object : null;
+	}
+
+	/**
+	 * The kids of an intermediate node of the page tree.
+	 */
+	protected static class Kids {
+		/** The references to the kids. */
+		protected PdfObject[] refs;
+		/** For every kid that was read, the number of pages under this kid and the kids before it. */
+		protected int[] ends;
+		/** The number of kids that were read. */
+		protected int resolved;
+		/** The /Count of the node (-1 if it has none). */
+		protected int count;
+
+		/**
+		 * Creates the kids of a node.
+		 * @param n	the number of kids
+		 */
+		protected Kids(int n) {
+			refs = new PdfObject[n];
+			ends = new int[n];
+		}
+
+		/**
+		 * Finds the kid with a page among the kids that were read.
+		 * @param page	the index of a page under the node (the first page is 0)
+		 * @return	the index of the kid with the page, or -1 if these kids have fewer pages
+		 */
+		protected int find(int page) {
+			int low = 0;
+			int high = resolved - 1;
+			int found = -1;
+			while (low <= high) {
+				int mid = (low + high) >>> 1;
+				if (ends[mid] > page) {
+					found = mid;
+					high = mid - 1;
+				}
+				else {
+					low = mid + 1;
+				}
+			}
+			return found;
+		}
+	}
+}
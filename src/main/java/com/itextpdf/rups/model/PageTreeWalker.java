@@ -0,0 +1,185 @@
+/*
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 2007-2015 iText Group NV
+ * Authors: Bruno Lowagie et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.rups.model;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import com.itextpdf.text.pdf.PdfArray;
+import com.itextpdf.text.pdf.PdfDictionary;
+import com.itextpdf.text.pdf.PdfIndirectReference;
+import com.itextpdf.text.pdf.PdfName;
+import com.itextpdf.text.pdf.PdfObject;
+import com.itextpdf.text.pdf.PdfReader;
+
+/**
+ * Walks the page tree of a PDF file in the background, with a PdfReader
+ * of its own, and publishes the object numbers of the pages it finds in
+ * chunks, in page order. No tree nodes are created for the pages.
+ */
+public class PageTreeWalker extends BackgroundTask {
+
+	/** The minimum time between two updates of the pages that were found (in ms). */
+	public static final long PUBLISH_INTERVAL = 250;
+
+	/**
+	 * Receives the pages that were found on the event dispatching thread.
+	 */
+	public interface PageListener {
+		/**
+		 * Called when more pages were found.
+		 * @param walker	the walker that found the pages
+		 * @param refs		the object numbers of the pages; only the first count are valid
+		 * @param count		the number of pages found so far
+		 * @param finished	true if the whole page tree was walked
+		 */
+		void pagesFound(PageTreeWalker walker, int[] refs, int count, boolean finished);
+	}
+
+	/** The PDF file. */
+	protected PdfFile file;
+	/** The listener that receives the pages. */
+	protected PageListener listener;
+	/** The object numbers of the pages that were found. */
+	protected int[] refs = new int[64];
+	/** The number of pages that were found. */
+	protected int count;
+	/** The time at which the pages were last published. */
+	private long lastPublished;
+
+	/**
+	 * Creates and starts a walker.
+	 * @param file		the PDF file
+	 * @param listener	the listener that receives the pages
+	 */
+	public PageTreeWalker(PdfFile file, PageListener listener) {
+		this.file = file;
+		this.listener = listener;
+		start();
+	}
+
+	/**
+	 * @see com.itextpdf.rups.model.BackgroundTask#doTask()
+	 */
+	@Override
+	public void doTask() {
+		PdfReader reader = null;
+		try {
+			reader = file.openReader();
+			List<PdfObject> stack = new ArrayList<PdfObject>();
+			BitSet visited = new BitSet();
+			stack.add(reader.getCatalog().get(PdfName.PAGES));
+			while (!stack.isEmpty() && !isInterrupted()) {
+				PdfObject object = stack.remove(stack.size() - 1);
+				int ref = -1;
+				if (object instanceof PdfIndirectReference) {
+					ref = ((PdfIndirectReference)object).getNumber();
+					// a page tree with a loop would never end
+					if (visited.get(ref))
+						continue;
+					visited.set(ref);
+					object = reader.getPdfObjectRelease(ref);
+				}
+				if (!(object instanceof PdfDictionary))
+					continue;
+				PdfDictionary dict = (PdfDictionary)object;
+				PdfArray kids = dict.getAsArray(PdfName.KIDS);
+				if (kids != null && !PdfName.PAGE.equals(dict.get(PdfName.TYPE))) {
+					for (int i = kids.size() - 1; i >= 0; i--)
+						stack.add(kids.getPdfObject(i));
+				}
+				else if (ref > -1) {
+					add(ref);
+				}
+			}
+		}
+		catch(IOException ioe) {
+			ioe.printStackTrace();
+		}
+		finally {
+			if (reader != null)
+				reader.close();
+		}
+		publish(true);
+	}
+
+	/**
+	 * Adds a page.
+	 * @param ref	the object number of the page dictionary
+	 */
+	protected void add(int ref) {
+		if (count == refs.length) {
+			// the entries that were published are never changed
+			int[] tmp = new int[count << 1];
+			System.arraycopy(refs, 0, tmp, 0, count);
+			refs = tmp;
+		}
+		refs[count++] = ref;
+		publish(false);
+	}
+
+	/**
+	 * Publishes the pages that were found, at most once per PUBLISH_INTERVAL.
+	 * @param finished	true if the whole page tree was walked
+	 */
+	protected void publish(boolean finished) {
+		long now = System.currentTimeMillis();
+		if (!finished && now - lastPublished < PUBLISH_INTERVAL)
+			return;
+		lastPublished = now;
+		publish(new Object[] { refs, Integer.valueOf(count), Boolean.valueOf(finished) });
+	}
+
+	/**
+	 * Only the most recent pages that were published are passed to the listener.
+	 * @see com.itextpdf.rups.model.BackgroundTask#process(java.util.List)
+	 */
+	@Override
+	protected void process(List<Object> chunks) {
+		Object[] last = (Object[])chunks.get(chunks.size() - 1);
+		listener.pagesFound(this, (int[])last[0], ((Integer)last[1]).intValue(), ((Boolean)last[2]).booleanValue());
+	}
+}
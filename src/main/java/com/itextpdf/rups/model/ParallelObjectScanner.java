@@ -0,0 +1,333 @@
+/*
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 2007-2015 iText Group NV
+ * Authors: Bruno Lowagie et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.rups.model;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.itextpdf.text.pdf.PdfObject;
+import com.itextpdf.text.pdf.PdfReader;
+
+/**
+ * Scans the object numbers of the xref table in parallel.
+ * The range of object numbers is split into chunks; every worker task
+ * runs on the TaskScheduler, uses its own PdfReader over the shared source
+ * of the PDF file (PdfReader isn't thread-safe) and takes the next chunk
+ * until all chunks are done.
+ * The result is the same as storing the objects one by one with
+ * IndirectObjectFactory.storeNextObject().
+ */
+public class ParallelObjectScanner {
+
+	/**
+	 * Receives the chunks that were scanned, in the order of the object numbers,
+	 * on the thread that called scan().
+	 */
+	public interface ChunkListener {
+		/**
+		 * Called when all the chunks up to and including this one were scanned.
+		 * @param refs	the numbers of the objects that exist in the chunk, in ascending order
+		 * @param last	the last object number of the chunk
+		 */
+		void chunkScanned(int[] refs, int last);
+	}
+
+	/** The number of object numbers in one chunk. */
+	public static final int CHUNK_SIZE = 4096;
+
+	/** The PDF file that is scanned. */
+	protected PdfFile file;
+	/** The highest object number that is scanned. */
+	protected int n;
+	/** The index in which the descriptors of the objects are recorded (can be null). */
+	protected ObjectTypeIndex types;
+	/** The number of worker tasks. */
+	protected int threads;
+	/** The number of chunks. */
+	protected int chunks;
+	/** The object numbers that were found, per chunk (null for a chunk that wasn't scanned yet). */
+	protected AtomicReferenceArray<int[]> results;
+	/** The number of chunks that were passed to the listener. */
+	protected int delivered;
+	/** The next chunk that has to be scanned. */
+	protected AtomicInteger nextChunk = new AtomicInteger();
+	/** The number of object numbers that have been scanned. */
+	protected AtomicInteger scanned = new AtomicInteger();
+
+	/**
+	 * Creates a scanner that uses one thread per processor.
+	 * @param file	the PDF file to scan
+	 * @param n		the highest object number to scan
+	 */
+	public ParallelObjectScanner(PdfFile file, int n) {
+		this(file, n, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a scanner that uses one thread per processor and
+	 * records a descriptor of every object it finds.
+	 * @param file	the PDF file to scan
+	 * @param n		the highest object number to scan
+	 * @param types	the index in which the objects are recorded
+	 */
+	public ParallelObjectScanner(PdfFile file, int n, ObjectTypeIndex types) {
+		this(file, n, types, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a scanner that records a descriptor of every object it finds.
+	 * @param file		the PDF file to scan
+	 * @param n			the highest object number to scan
+	 * @param types		the index in which the objects are recorded
+	 * @param threads	the number of worker tasks
+	 */
+	public ParallelObjectScanner(PdfFile file, int n, ObjectTypeIndex types, int threads) {
+		this(file, n, threads);
+		this.types = types;
+	}
+
+	/**
+	 * Creates a scanner.
+	 * @param file		the PDF file to scan
+	 * @param n			the highest object number to scan
+	 * @param threads	the number of worker tasks
+	 */
+	public ParallelObjectScanner(PdfFile file, int n, int threads) {
+		this.file = file;
+		this.n = n;
+		chunks = n / CHUNK_SIZE + 1;
+		// every worker reads the xref table; a worker without a chunk is wasted
+		this.threads = Math.max(1, Math.min(threads, chunks));
+		results = new AtomicReferenceArray<int[]>(chunks);
+	}
+
+	/**
+	 * Tells you if it's worth scanning a number of objects in parallel.
+	 * @param n	the highest object number
+	 * @return	true if there are enough objects and more than one processor
+	 */
+	public static boolean isWorthwhile(int n) {
+		return n > 4 * CHUNK_SIZE && Runtime.getRuntime().availableProcessors() > 1;
+	}
+
+	/**
+	 * Tells you if it's worth scanning the objects of a PDF file in parallel.
+	 * Every worker opens a PdfReader of its own; if the xref table had to be
+	 * rebuilt, every one of those readers would scan the whole file again,
+	 * and the sequential scan is faster.
+	 * @param file	the PDF file
+	 * @param n		the highest object number
+	 * @return	true if there are enough objects and more than one processor,
+	 * 			and the xref table wasn't rebuilt
+	 */
+	public static boolean isWorthwhile(PdfFile file, int n) {
+		return isWorthwhile(n) && !file.isRebuilt();
+	}
+
+	/**
+	 * Gets the number of object numbers that have been scanned so far.
+	 * @return	a number between 0 and the highest object number
+	 */
+	public int getScanned() {
+		return scanned.get();
+	}
+
+	/**
+	 * Scans all the object numbers and waits for the result.
+	 * @param progress	a dialog showing the progress (can be null)
+	 * @return	the numbers of the objects that exist, in ascending order
+	 * @throws IOException
+	 */
+	public int[] scan(ProgressDialog progress) throws IOException {
+		return scan(progress, null);
+	}
+
+	/**
+	 * Scans all the object numbers and waits for the result.
+	 * While waiting, the chunks that were scanned are passed to a listener
+	 * as soon as all the chunks before them were scanned too.
+	 * @param progress	a dialog showing the progress (can be null)
+	 * @param listener	the listener that receives the chunks (can be null)
+	 * @return	the numbers of the objects that exist, in ascending order
+	 * @throws IOException
+	 */
+	public int[] scan(ProgressDialog progress, ChunkListener listener) throws IOException {
+		// a token only knows one thread, so every worker gets a token of its own
+		List<CancellationToken> tokens = new ArrayList<CancellationToken>();
+		TaskScheduler scheduler = TaskScheduler.getInstance();
+		try {
+			List<Future<Object>> futures = new ArrayList<Future<Object>>();
+			for (int i = 0; i < threads; i++) {
+				CancellationToken token = new CancellationToken();
+				tokens.add(token);
+				futures.add(scheduler.submit(new Worker(token), TaskScheduler.INTERACTIVE, token));
+			}
+			for (Future<Object> future : futures) {
+				while (true) {
+					try {
+						future.get(200, TimeUnit.MILLISECONDS);
+						break;
+					}
+					catch(TimeoutException te) {
+						if (Thread.currentThread().isInterrupted()
+								|| progress != null && progress.isCancelled())
+							throw new InterruptedIOException("The scan was cancelled.");
+						if (progress != null)
+							progress.setValue(getScanned());
+						deliver(listener);
+					}
+				}
+			}
+			deliver(listener);
+		}
+		catch(InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("The scan was interrupted.");
+		}
+		catch(ExecutionException ee) {
+			Throwable cause = ee.getCause();
+			if (cause instanceof IOException)
+				throw (IOException)cause;
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException)cause;
+			throw new RuntimeException(cause);
+		}
+		finally {
+			// stops the workers that are still running
+			for (CancellationToken token : tokens) {
+				token.cancel();
+			}
+		}
+		int total = 0;
+		for (int chunk = 0; chunk < chunks; chunk++) {
+			total += results.get(chunk).length;
+		}
+		int[] refs = new int[total];
+		int idx = 0;
+		for (int chunk = 0; chunk < chunks; chunk++) {
+			int[] result = results.get(chunk);
+			System.arraycopy(result, 0, refs, idx, result.length);
+			idx += result.length;
+		}
+		return refs;
+	}
+
+	/**
+	 * Passes the chunks that were scanned without a gap before them to the listener.
+	 * @param listener	the listener that receives the chunks (can be null)
+	 */
+	protected void deliver(ChunkListener listener) {
+		if (listener == null)
+			return;
+		int[] result;
+		while (delivered < chunks && (result = results.get(delivered)) != null) {
+			listener.chunkScanned(result, Math.min((delivered + 1) * CHUNK_SIZE, n + 1) - 1);
+			delivered++;
+		}
+	}
+
+	/**
+	 * Scans chunks with its own PdfReader until all chunks are taken.
+	 */
+	protected class Worker implements Callable<Object> {
+
+		/** The token that tells the worker to stop. */
+		protected CancellationToken token;
+
+		/**
+		 * Creates a worker.
+		 * @param token	the token that tells the worker to stop
+		 */
+		protected Worker(CancellationToken token) {
+			this.token = token;
+		}
+
+		/**
+		 * @see java.util.concurrent.Callable#call()
+		 */
+		public Object call() throws IOException {
+			// a worker that starts after the scan was stopped doesn't need a reader
+			if (token.isCancelled())
+				return null;
+			PdfReader reader = file.openReader();
+			try {
+				int chunk;
+				while (!token.isCancelled() && !Thread.currentThread().isInterrupted()
+						&& (chunk = nextChunk.getAndIncrement()) < chunks) {
+					int from = chunk * CHUNK_SIZE;
+					int to = Math.min(from + CHUNK_SIZE, n + 1);
+					int[] found = new int[to - from];
+					int count = 0;
+					for (int ref = from; ref < to; ref++) {
+						if (token.isCancelled())
+							return null;
+						PdfObject object = reader.getPdfObjectRelease(ref);
+						if (object != null) {
+							found[count++] = ref;
+							if (types != null)
+								types.record(ref, object);
+						}
+					}
+					int[] result = new int[count];
+					System.arraycopy(found, 0, result, 0, count);
+					results.set(chunk, result);
+					scanned.addAndGet(to - from);
+				}
+			}
+			finally {
+				reader.close();
+			}
+			return null;
+		}
+	}
+}
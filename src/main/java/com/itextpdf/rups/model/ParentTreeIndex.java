@@ -0,0 +1,271 @@
+/*
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 2007-2015 iText Group NV
+ * Authors: Bruno Lowagie et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.rups.model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.itextpdf.text.pdf.PdfArray;
+import com.itextpdf.text.pdf.PdfDictionary;
+import com.itextpdf.text.pdf.PdfIndirectReference;
+import com.itextpdf.text.pdf.PdfName;
+import com.itextpdf.text.pdf.PdfNumber;
+import com.itextpdf.text.pdf.PdfObject;
+import com.itextpdf.text.pdf.PdfReader;
+
+/**
+ * Finds the structure element of a marked-content sequence or of an
+ * object with a /StructParent entry, by descending the /ParentTree number
+ * tree along the /Limits of its kids, instead of walking the structure tree.
+ * Only the nodes on the way to the key are read; the nodes that were read
+ * are cached.
+ */
+public class ParentTreeIndex {
+
+	/** The number of nodes of the number tree that are cached. */
+	public static final int CACHE_SIZE = 256;
+	/** The maximum depth of the number tree (to stop at loops). */
+	public static final int MAX_DEPTH = 32;
+
+	/** The reader of the document. */
+	protected PdfReader reader;
+	/** The root of the number tree, or null if the document has no /ParentTree. */
+	protected PdfDictionary root;
+	/** The root node, once it was read. */
+	protected Node top;
+	/** The nodes that were read, by object number. */
+	protected Map<Integer, Node> cache = new LinkedHashMap<Integer, Node>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Integer, Node> eldest) {
+			return size() > CACHE_SIZE;
+		}
+		private static final long serialVersionUID = -1716542046375447447L;
+	};
+
+	/**
+	 * Creates an index over the /ParentTree of a document.
+	 * @param reader	the reader of the document
+	 */
+	public ParentTreeIndex(PdfReader reader) {
+		this.reader = reader;
+		PdfDictionary structure = reader.getCatalog().getAsDict(PdfName.STRUCTTREEROOT);
+		if (structure != null)
+			root = structure.getAsDict(PdfName.PARENTTREE);
+	}
+
+	/**
+	 * Tells you if the document has a /ParentTree.
+	 * @return	false if there's nothing to look up
+	 */
+	public boolean isEmpty() {
+		return root == null;
+	}
+
+	/**
+	 * Gets the value of a key in the number tree.
+	 * @param key	a /StructParent or /StructParents key
+	 * @return	the value, or null if the key isn't in the number tree
+	 */
+	public PdfObject get(int key) {
+		if (root == null)
+			return null;
+		if (top == null)
+			top = read(root);
+		Node node = top;
+		for (int depth = 0; depth < MAX_DEPTH && node != null; depth++) {
+			int i = node.find(key);
+			if (i < 0)
+				return null;
+			if (node.leaf)
+				return node.values[i];
+			node = getNode(node.values[i]);
+		}
+		return null;
+	}
+
+	/**
+	 * Finds the structure element of an object with a /StructParent entry
+	 * (for instance an annotation or a form XObject).
+	 * @param structParent	the /StructParent key
+	 * @return	the object number of the structure element, or -1
+	 */
+	public int findElement(int structParent) {
+		return getNumber(get(structParent));
+	}
+
+	/**
+	 * Finds the structure element of a marked-content sequence on a page.
+	 * @param structParents	the /StructParents key of the page (or form XObject)
+	 * @param mcid			the marked-content identifier
+	 * @return	the object number of the structure element, or -1
+	 */
+	public int findElement(int structParents, int mcid) {
+		PdfObject value = PdfReader.getPdfObjectRelease(get(structParents));
+		if (!(value instanceof PdfArray) || mcid < 0)
+			return -1;
+		PdfArray elements = (PdfArray)value;
+		if (mcid >= elements.size())
+			return -1;
+		return getNumber(elements.getPdfObject(mcid));
+	}
+
+	/**
+	 * Gets a kid of an intermediate node.
+	 * @param kid	an element of the /Kids array
+	 * @return	the node, or null if the kid isn't a node of the number tree
+	 */
+	protected Node getNode(PdfObject kid) {
+		if (!(kid instanceof PdfIndirectReference))
+			return kid instanceof PdfDictionary ? read((PdfDictionary)kid) : null;
+		int ref = ((PdfIndirectReference)kid).getNumber();
+		Node node = cache.get(ref);
+		if (node != null)
+			return node;
+		PdfObject object = reader.getPdfObjectRelease(ref);
+		if (!(object instanceof PdfDictionary))
+			return null;
+		node = read((PdfDictionary)object);
+		cache.put(ref, node);
+		return node;
+	}
+
+	/**
+	 * Reads a node of the number tree. For an intermediate node,
+	 * the /Limits of its kids are read, but not their /Nums or /Kids.
+	 * @param dict	a node of the number tree
+	 * @return	a leaf or an intermediate node
+	 */
+	protected Node read(PdfDictionary dict) {
+		PdfArray nums = dict.getAsArray(PdfName.NUMS);
+		if (nums != null) {
+			int n = nums.size() / 2;
+			Node node = new Node(true, n);
+			for (int i = 0; i < n; i++) {
+				PdfObject key = nums.getPdfObject(2 * i);
+				node.low[i] = key instanceof PdfNumber ? ((PdfNumber)key).intValue() : Integer.MIN_VALUE;
+				node.high[i] = node.low[i];
+				node.values[i] = nums.getPdfObject(2 * i + 1);
+			}
+			return node;
+		}
+		PdfArray kids = dict.getAsArray(PdfName.KIDS);
+		if (kids == null)
+			return new Node(true, 0);
+		Node node = new Node(false, kids.size());
+		for (int i = 0; i < kids.size(); i++) {
+			PdfObject kid = kids.getPdfObject(i);
+			node.values[i] = kid;
+			// kids are supposed to have /Limits; without them, the kid covers everything
+			node.low[i] = Integer.MIN_VALUE;
+			node.high[i] = Integer.MAX_VALUE;
+			PdfObject object = PdfReader.getPdfObjectRelease(kid);
+			if (object instanceof PdfDictionary) {
+				PdfArray limits = ((PdfDictionary)object).getAsArray(PdfName.LIMITS);
+				if (limits != null && limits.size() == 2
+						&& limits.getAsNumber(0) != null && limits.getAsNumber(1) != null) {
+					node.low[i] = limits.getAsNumber(0).intValue();
+					node.high[i] = limits.getAsNumber(1).intValue();
+				}
+			}
+		}
+		return node;
+	}
+
+	/**
+	 * Gets the object number of an indirect reference.
+	 * @param object	a PDF object
+	 * @return	the object number, or -1 if the object isn't an indirect reference
+	 */
+	protected static int getNumber(PdfObject object) {
+		return object instanceof PdfIndirectReference ? ((PdfIndirectReference)object).getNumber() : -1;
+	}
+
+	/**
+	 * A node of the number tree that was read: the keys and values of a leaf,
+	 * or the limits and references of the kids of an intermediate node.
+	 */
+	protected static class Node {
+		/** True for a node with /Nums. */
+		protected boolean leaf;
+		/** The keys of a leaf, or the lower limits of the kids. */
+		protected int[] low;
+		/** The keys of a leaf, or the upper limits of the kids. */
+		protected int[] high;
+		/** The values of a leaf, or the kids. */
+		protected PdfObject[] values;
+
+		/**
+		 * Creates a node.
+		 * @param leaf	true for a node with /Nums
+		 * @param n		the number of keys or kids
+		 */
+		protected Node(boolean leaf, int n) {
+			this.leaf = leaf;
+			low = new int[n];
+			high = new int[n];
+			values = new PdfObject[n];
+		}
+
+		/**
+		 * Finds the key, or the kid whose limits contain the key.
+		 * The keys and limits are sorted, as the PDF specification requires.
+		 * @param key	a key of the number tree
+		 * @return	the index of the value or kid, or -1 if the key isn't there
+		 */
+		protected int find(int key) {
+			int lo = 0;
+			int hi = high.length - 1;
+			while (lo <= hi) {
+				int mid = (lo + hi) >>> 1;
+				if (high[mid] < key)
+					lo = mid + 1;
+				else if (low[mid] > key)
+					hi = mid - 1;
+				else
+					return mid;
+			}
+			return -1;
+		}
+	}
+}
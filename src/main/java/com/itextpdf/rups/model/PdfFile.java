@@ -45,14 +45,19 @@ package com.itextpdf.rups.model;
 
 import com.itextpdf.text.DocumentException;
 import com.itextpdf.text.exceptions.BadPasswordException;
+import com.itextpdf.text.io.IndependentRandomAccessSource;
+import com.itextpdf.text.io.RandomAccessSource;
+import com.itextpdf.text.io.RandomAccessSourceFactory;
 import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.RandomAccessFileOrArray;
 
 import javax.swing.*;
-import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 
 /**
@@ -69,34 +74,55 @@ public class PdfFile {
 	/** The original filename. */
 	protected String filename = null;
 	
+	/** The source of the bytes of the PDF file (memory-mapped if the PDF was passed as a file). */
+	protected RandomAccessSource source = null;
+	
+	/** The sources that were opened for other threads and that haven't been closed yet. */
+	protected Set<RandomAccessSource> opened = new HashSet<RandomAccessSource>();
+	
 	/** The PdfReader object. */
 	protected PdfReader reader = null;
 	
+	/** Indicates if the PdfReader only reads objects when they are asked for. */
+	protected boolean partial = false;
+	
+	/** The password that was used to open the PDF file (if any). */
+	protected byte[] password = null;
+	
 	/** The file permissions */
 	protected Permissions permissions = null;
-
-    /** Raw content string */
-    protected String rawContent = null;
 	
 	// constructors
 	/**
 	 * Constructs a PdfFile object.
+	 * The file is memory-mapped in pages instead of being read into memory,
+	 * so files larger than 2 GB can be opened too. Only the xref table
+	 * is read up front; the objects are parsed when they are asked for.
 	 * @param	file	the File to read
 	 * @throws IOException 
 	 * @throws DocumentException 
 	 */
 	public PdfFile(File file) throws IOException, DocumentException {
+		this(file, true);
+	}
+	
+	/**
+	 * Constructs a PdfFile object.
+	 * The file is memory-mapped in pages instead of being read into memory,
+	 * so files larger than 2 GB can be opened too.
+	 * @param	file	the File to read
+	 * @param	partial	if true, only the xref table is read up front;
+	 * 			the objects are parsed when they are asked for
+	 * @throws IOException 
+	 * @throws DocumentException 
+	 */
+	public PdfFile(File file, boolean partial) throws IOException, DocumentException {
 		if (file == null)
 			throw new IOException("No file selected.");
-		PdfReader.debugmode = true;
+		this.partial = partial;
 		directory = file.getParentFile();
 		filename = file.getName();
-		try {
-			readFile(new FileInputStream(file), false);
-		}
-		catch(BadPasswordException bpe) {
-			readFile(new FileInputStream(file), true);
-		}
+		readSource(new RandomAccessSourceFactory().createBestSource(file.getAbsolutePath()));
 	}
 	
 	/**
@@ -106,14 +132,39 @@ public class PdfFile {
 	 * @throws DocumentException 
 	 */
 	public PdfFile(byte[] file) throws IOException, DocumentException {
+		readSource(new RandomAccessSourceFactory().createSource(file));
+	}
+	
+	/**
+	 * Reads the PDF from a source, asking for a password if necessary.
+	 * If the PDF can't be read, the source is closed.
+	 * @param	source	the source of the bytes of the PDF file
+	 * @throws IOException
+	 * @throws DocumentException
+	 */
+	protected void readSource(RandomAccessSource source) throws IOException, DocumentException {
 		PdfReader.debugmode = true;
-        rawContent = new String(file, "Cp1252");
-
+		this.source = source;
+		boolean success = false;
 		try {
-			readFile(new ByteArrayInputStream(file), false);
+			try {
+				readFile(false);
+			}
+			catch(BadPasswordException bpe) {
+				readFile(true);
+			}
+			success = true;
 		}
-		catch(BadPasswordException bpe) {
-			readFile(new ByteArrayInputStream(file), true);
+		finally {
+			// a source that is left open keeps the file locked
+			if (!success) {
+				try {
+					source.close();
+				}
+				catch(IOException ioe) {
+					// the exception that caused the failure is more useful
+				}
+			}
 		}
 	}
 	
@@ -122,7 +173,7 @@ public class PdfFile {
 	 * @throws IOException
 	 * @throws DocumentException
 	 */
-	protected void readFile(InputStream fis, boolean checkPass) throws IOException, DocumentException {
+	protected void readFile(boolean checkPass) throws IOException, DocumentException {
 		// reading the file into PdfReader
 		permissions = new Permissions();
 		if (checkPass) {
@@ -139,8 +190,8 @@ public class PdfFile {
 
             pane.createDialog(null, "Enter the User or Owner Password of this PDF file").setVisible(true);
 
-		    byte[] password = new String(passwordField.getPassword()).getBytes();
-		    reader = new PdfReader(fis, password);
+		    password = new String(passwordField.getPassword()).getBytes();
+		    reader = new PdfReader(new RandomAccessFileOrArray(source), password, partial);
 		    permissions.setEncrypted(true);
 		    permissions.setCryptoMode(reader.getCryptoMode());
 		    permissions.setPermissions((int)reader.getPermissions());
@@ -153,11 +204,82 @@ public class PdfFile {
 		    }
 		}
 		else {
-			reader = new PdfReader(fis);
+			reader = new PdfReader(new RandomAccessFileOrArray(source), null, partial);
 			permissions.setEncrypted(false);
 		}
 	}
 
+	/**
+	 * Opens another PdfReader on the PDF file, for instance to read
+	 * objects in another thread (PdfReader isn't thread-safe).
+	 * The reader only reads objects when they are asked for;
+	 * it should be closed when it's no longer needed.
+	 * @return	a new PdfReader
+	 * @throws IOException
+	 */
+	public PdfReader openReader() throws IOException {
+		RandomAccessSource secondary = openSource();
+		try {
+			return new PdfReader(new RandomAccessFileOrArray(secondary), password, true);
+		}
+		catch(IOException ioe) {
+			secondary.close();
+			throw ioe;
+		}
+	}
+
+	/**
+	 * Opens another source of the bytes of the PDF file, to be used in
+	 * another thread: the paged source of the main reader isn't thread-safe.
+	 * A file gets a source with its own mapped pages, which are unmapped
+	 * when the source is closed. The source should be closed when it's no
+	 * longer needed; if it isn't, it's closed when the PdfFile is closed.
+	 * @return	a new source
+	 * @throws IOException
+	 */
+	public RandomAccessSource openSource() throws IOException {
+		RandomAccessSource secondary;
+		File file = getFile();
+		if (file == null) {
+			// reading a byte array doesn't change the state of the source,
+			// but closing it would release the array of the main reader
+			secondary = new IndependentRandomAccessSource(source);
+		}
+		else {
+			secondary = new RandomAccessSourceFactory().createBestSource(file.getAbsolutePath());
+		}
+		return new SecondarySource(secondary);
+	}
+
+	/**
+	 * Closes the PdfReader and releases the source of the PDF file,
+	 * and the sources of other threads that are still open, so that
+	 * no part of the file stays mapped.
+	 * @throws IOException
+	 */
+	public void close() throws IOException {
+		if (reader != null)
+			reader.close();
+		List<RandomAccessSource> secondary;
+		synchronized(opened) {
+			secondary = new ArrayList<RandomAccessSource>(opened);
+		}
+		for (RandomAccessSource s : secondary) {
+			s.close();
+		}
+		source.close();
+	}
+
+	/**
+	 * Tells you if the xref table of the PDF file was broken and had to be
+	 * rebuilt by scanning the whole file. Every reader opened with
+	 * openReader() would have to do that scan again.
+	 * @return	true if the xref table was rebuilt
+	 */
+	public boolean isRebuilt() {
+		return reader.isRebuilt();
+	}
+
 	/**
 	 * Getter for iText's PdfReader object.
 	 * @return	a PdfReader object
@@ -166,6 +288,14 @@ public class PdfFile {
 		return reader;
 	}
 	
+	/**
+	 * Tells you if the PdfReader only reads objects when they are asked for.
+	 * @return	true if the PDF was opened in partial mode
+	 */
+	public boolean isPartial() {
+		return partial;
+	}
+	
 	/**
 	 * Getter for the filename
 	 * @return the original filename
@@ -175,12 +305,26 @@ public class PdfFile {
 	    return filename;
 	}
 
+    /**
+     * Getter for the file that was read.
+     * @return the file, or null if the PDF wasn't passed as a file
+     */
+    public File getFile() {
+        if (filename == null)
+            return null;
+        return new File(directory, filename);
+    }
+
     public File getDirectory() {
         return directory;
     }
 
-    public String getRawContent() {
-        return rawContent;
+    /**
+     * Getter for the source of the bytes of the PDF file.
+     * @return the (memory-mapped) source
+     */
+    public RandomAccessSource getSource() {
+        return source;
     }
 
     public void setDirectory(File directory) {
@@ -190,4 +334,52 @@ public class PdfFile {
     public void setFilename(String filename) {
         this.filename = filename;
     }
+
+	/**
+	 * A source that is opened for another thread. It is remembered by
+	 * the PdfFile until it is closed.
+	 */
+	protected class SecondarySource implements RandomAccessSource {
+		/** The source that is read. */
+		protected RandomAccessSource source;
+		/** Indicates if the source was closed. */
+		protected boolean closed = false;
+
+		/**
+		 * Creates a source that is remembered by the PdfFile until it is closed.
+		 * @param source	the source that is read
+		 */
+		protected SecondarySource(RandomAccessSource source) {
+			this.source = source;
+			synchronized(opened) {
+				opened.add(this);
+			}
+		}
+
+		public int get(long position) throws IOException {
+			return source.get(position);
+		}
+
+		public int get(long position, byte[] bytes, int off, int len) throws IOException {
+			return source.get(position, bytes, off, len);
+		}
+
+		public long length() {
+			return source.length();
+		}
+
+		/**
+		 * Closes the source; closing it more than once does nothing.
+		 * @see com.itextpdf.text.io.RandomAccessSource#close()
+		 */
+		public void close() throws IOException {
+			synchronized(opened) {
+				if (closed)
+					return;
+				closed = true;
+				opened.remove(this);
+			}
+			source.close();
+		}
+	}
 }
\ No newline at end of file
@@ -46,26 +46,49 @@ package com.itextpdf.rups.model;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.Insets;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 
+import javax.swing.JButton;
 import javax.swing.JDialog;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JProgressBar;
+import javax.swing.Timer;
 import javax.swing.UIManager;
 
 /**
  * An informational dialog window showing the progress of a certain action.
+ * The setters can be called from any thread, as often as you like:
+ * they only store the new state, which is shown on the event dispatching
+ * thread at most a few times per second.
  */
 public class ProgressDialog extends JDialog {
 
 	/** a serial version uid. */
 	private static final long serialVersionUID = -8286949678008659120L;
+	/** The time between two repaints of the progress (in ms). */
+	public static final int REPAINT_DELAY = 200;
 	/** label showing the message describing what's in progress. */
 	protected JLabel message;
 	/** the progress bar */
 	protected JProgressBar progress;
+	/** the button that cancels the action (only visible if there's a cancel action). */
+	protected JButton cancel;
 	/** the icon used for this dialog box. */
 	public static final JLabel INFO = new JLabel(UIManager.getIcon("OptionPane.informationIcon"));
+	/** the timer that shows the current state. */
+	protected Timer repainter;
+	/** the message that has to be shown. */
+	private volatile String currentMessage;
+	/** the value that has to be shown. */
+	private volatile int currentValue;
+	/** the maximum value that has to be shown. */
+	private volatile int currentTotal;
+	/** the action that is performed when the cancel button is pressed. */
+	private volatile ActionListener cancelAction;
+	/** true if the cancel button was pressed. */
+	private volatile boolean cancelled;
 	
 	/**
 	 * Creates a Progress frame displaying a certain message
@@ -77,7 +100,7 @@ public class ProgressDialog extends JDialog {
 		super();
 		this.setTitle("Progress...");
 		setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
-	    setSize(300, 100);
+	    setSize(300, 130);
 	    this.setLocationRelativeTo(parent);
 	    
 		setLayout(new GridBagLayout());
@@ -89,22 +112,63 @@ public class ProgressDialog extends JDialog {
 		constraints.gridheight = 1;
 		constraints.gridx = 1;
 		constraints.insets = new Insets(5, 5, 5, 5);
+		currentMessage = msg;
 	    message = new JLabel(msg);
 	    getContentPane().add(message, constraints);
 		constraints.gridy = 1;
 	    progress = new JProgressBar();
 	    progress.setIndeterminate(true);
 	    getContentPane().add(progress, constraints);
+		constraints.gridy = 2;
+	    cancel = new JButton("Cancel");
+	    cancel.setVisible(false);
+	    cancel.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				cancelled = true;
+				cancel.setEnabled(false);
+				currentMessage = "Cancelling...";
+				ActionListener action = cancelAction;
+				if (action != null)
+					action.actionPerformed(e);
+			}
+		});
+	    getContentPane().add(cancel, constraints);
 	    
+	    repainter = new Timer(REPAINT_DELAY, new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				repaintProgress();
+			}
+		});
+	    repainter.start();
 	    setVisible(true);
 	}
 	
+	/**
+	 * Shows the current message and progress.
+	 * Called on the event dispatching thread.
+	 */
+	protected void repaintProgress() {
+		message.setText(currentMessage);
+		cancel.setVisible(cancelAction != null);
+		int n = currentTotal;
+		if (n > 0) {
+			progress.setMaximum(n);
+			progress.setIndeterminate(false);
+			progress.setStringPainted(true);
+			progress.setValue(currentValue);
+		}
+		else {
+			progress.setIndeterminate(true);
+			progress.setStringPainted(false);
+		}
+	}
+	
 	/**
 	 * Changes the message describing what's in progress
 	 * @param msg	the message describing what's in progress
 	 */
 	public void setMessage(String msg) {
-		message.setText(msg);
+		currentMessage = msg;
 	}
 
 	/**
@@ -112,7 +176,7 @@ public class ProgressDialog extends JDialog {
 	 * @param value	the current value
 	 */
 	public void setValue(int value) {
-		progress.setValue(value);
+		currentValue = value;
 	}
 	
 	/**
@@ -121,14 +185,33 @@ public class ProgressDialog extends JDialog {
 	 * @param n	the maximum value for the progress bar
 	 */
 	public void setTotal(int n) {
-		if (n > 0) {
-			progress.setMaximum(n);
-			progress.setIndeterminate(false);
-			progress.setStringPainted(true);
-		}
-		else {
-			progress.setIndeterminate(true);
-			progress.setStringPainted(false);
-		}
+		currentTotal = n;
+	}
+	
+	/**
+	 * Shows a cancel button that performs an action when it's pressed.
+	 * The action is performed on the event dispatching thread.
+	 * @param action	the action that cancels what's in progress
+	 */
+	public void setCancelAction(ActionListener action) {
+		cancelAction = action;
+	}
+	
+	/**
+	 * Tells you if the cancel button was pressed.
+	 * @return	true if the user cancelled the action
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+	
+	/**
+	 * Stops showing the progress and closes the dialog.
+	 * @see java.awt.Window#dispose()
+	 */
+	@Override
+	public void dispose() {
+		repainter.stop();
+		super.dispose();
 	}
 }
@@ -0,0 +1,183 @@
+/*
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 2007-2015 iText Group NV
+ * Authors: Bruno Lowagie et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.rups.model;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.itextpdf.text.pdf.PdfArray;
+import com.itextpdf.text.pdf.PdfDictionary;
+import com.itextpdf.text.pdf.PdfIndirectReference;
+import com.itextpdf.text.pdf.PdfName;
+import com.itextpdf.text.pdf.PdfObject;
+import com.itextpdf.text.pdf.PdfReader;
+
+/**
+ * Finds the shortest path of references from the trailer to every
+ * indirect object, with a breadth-first search over the reference graph
+ * that runs in the background with a PdfReader of its own.
+ * For every object number, the number of the object that refers to it
+ * on that path is kept, so that the path to an object can be followed
+ * in the PdfTree.
+ */
+public class ReferencePathIndex extends BackgroundTask {
+
+	/** The parent of the objects the trailer refers to (object number 0 is never used). */
+	public static final int TRAILER = 0;
+	/** The parent of the objects that can't be reached from the trailer. */
+	public static final int UNREACHED = -1;
+
+	/** The PDF file. */
+	protected PdfFile file;
+	/** For every object number, the number of the object that refers to it first (or TRAILER or UNREACHED). */
+	protected int[] parents;
+	/** Indicates if the search has finished. */
+	protected volatile boolean finished;
+
+	/**
+	 * Creates the index and starts the search.
+	 * @param file	the PDF file
+	 * @param n		the highest object number in the xref table
+	 */
+	public ReferencePathIndex(PdfFile file, int n) {
+		super(TaskScheduler.BACKGROUND);
+		this.file = file;
+		parents = new int[n + 1];
+		Arrays.fill(parents, UNREACHED);
+		start();
+	}
+
+	/**
+	 * Tells you if all the paths have been found.
+	 * @return	true once the search has finished
+	 */
+	public boolean isFinished() {
+		return finished;
+	}
+
+	/**
+	 * Gets the path of references from the trailer to an object.
+	 * @param ref	an object number
+	 * @return	the object numbers on the path, starting with an object the trailer
+	 * 			refers to and ending with ref, or null if there's no such path (yet)
+	 */
+	public int[] getPath(int ref) {
+		if (!finished || ref <= TRAILER || ref >= parents.length || parents[ref] == UNREACHED)
+			return null;
+		int length = 0;
+		for (int r = ref; r != TRAILER; r = parents[r])
+			length++;
+		int[] path = new int[length];
+		for (int r = ref; r != TRAILER; r = parents[r])
+			path[--length] = r;
+		return path;
+	}
+
+	/**
+	 * @see com.itextpdf.rups.model.BackgroundTask#doTask()
+	 */
+	@Override
+	public void doTask() {
+		PdfReader reader = null;
+		try {
+			reader = file.openReader();
+			int[] queue = new int[parents.length];
+			int head = 0;
+			int tail = visit(TRAILER, reader.getTrailer(), queue, 0);
+			while (head < tail && !isInterrupted()) {
+				int ref = queue[head++];
+				PdfObject object = reader.getPdfObjectRelease(ref);
+				if (object != null)
+					tail = visit(ref, object, queue, tail);
+			}
+			finished = !isInterrupted();
+		}
+		catch(IOException ioe) {
+			ioe.printStackTrace();
+		}
+		finally {
+			if (reader != null)
+				reader.close();
+		}
+	}
+
+	/**
+	 * Adds the objects an object refers to, that weren't reached before,
+	 * to the queue. Direct objects inside the object are visited without recursion.
+	 * @param ref		the number of the object (or TRAILER)
+	 * @param object	the object
+	 * @param queue		the queue of objects that were reached
+	 * @param tail		the end of the queue
+	 * @return	the new end of the queue
+	 */
+	protected int visit(int ref, PdfObject object, int[] queue, int tail) {
+		List<PdfObject> stack = new ArrayList<PdfObject>();
+		stack.add(object);
+		while (!stack.isEmpty()) {
+			PdfObject current = stack.remove(stack.size() - 1);
+			if (current == null)
+				continue;
+			if (current instanceof PdfIndirectReference) {
+				int target = ((PdfIndirectReference)current).getNumber();
+				if (target > TRAILER && target < parents.length && parents[target] == UNREACHED) {
+					parents[target] = ref;
+					queue[tail++] = target;
+				}
+			}
+			else if (current instanceof PdfDictionary) {
+				PdfDictionary dict = (PdfDictionary)current;
+				for (PdfName key : dict.getKeys())
+					stack.add(dict.get(key));
+			}
+			else if (current instanceof PdfArray) {
+				PdfArray array = (PdfArray)current;
+				for (int i = 0; i < array.size(); i++)
+					stack.add(array.getPdfObject(i));
+			}
+		}
+		return tail;
+	}
+}
@@ -0,0 +1,258 @@
+/*
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 2007-2015 iText Group NV
+ * Authors: Bruno Lowagie et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.rups.model;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.itextpdf.text.pdf.PdfArray;
+import com.itextpdf.text.pdf.PdfDictionary;
+import com.itextpdf.text.pdf.PdfIndirectReference;
+import com.itextpdf.text.pdf.PdfName;
+import com.itextpdf.text.pdf.PdfNumber;
+import com.itextpdf.text.pdf.PdfObject;
+import com.itextpdf.text.pdf.PdfReader;
+
+/**
+ * Walks the structure tree of a tagged PDF in the background, with a
+ * PdfReader of its own, and counts the structure elements, the depth
+ * of the tree and the number of elements per structure type.
+ * No tree nodes are created for the elements.
+ */
+public class StructureStatistics extends BackgroundTask {
+
+	/**
+	 * Receives the statistics on the event dispatching thread.
+	 */
+	public interface StatisticsListener {
+		/**
+		 * Called when the whole structure tree was walked.
+		 * @param statistics	the statistics of the structure tree
+		 */
+		void statisticsFound(StructureStatistics statistics);
+	}
+
+	/** The PDF file. */
+	protected PdfFile file;
+	/** The listener that receives the statistics. */
+	protected StatisticsListener listener;
+	/** The number of structure elements. */
+	protected int elements;
+	/** The number of marked-content references (including plain MCIDs). */
+	protected int contents;
+	/** The number of object references. */
+	protected int objects;
+	/** The depth of the deepest structure element. */
+	protected int depth;
+	/** The number of elements per structure type. */
+	protected Map<String, int[]> types = new HashMap<String, int[]>();
+
+	/**
+	 * Creates and starts the walk.
+	 * @param file		the PDF file
+	 * @param listener	the listener that receives the statistics
+	 */
+	public StructureStatistics(PdfFile file, StatisticsListener listener) {
+		super(TaskScheduler.BACKGROUND);
+		this.file = file;
+		this.listener = listener;
+		start();
+	}
+
+	/**
+	 * @see com.itextpdf.rups.model.BackgroundTask#doTask()
+	 */
+	@Override
+	public void doTask() {
+		PdfReader reader = null;
+		try {
+			reader = file.openReader();
+			PdfDictionary root = reader.getCatalog().getAsDict(PdfName.STRUCTTREEROOT);
+			if (root == null)
+				return;
+			// the kids that still need to be visited, with the depth of their parent
+			List<PdfObject> stack = new ArrayList<PdfObject>();
+			List<Integer> levels = new ArrayList<Integer>();
+			BitSet visited = new BitSet();
+			stack.add(root.get(PdfName.K));
+			levels.add(Integer.valueOf(0));
+			while (!stack.isEmpty() && !isInterrupted()) {
+				PdfObject object = stack.remove(stack.size() - 1);
+				int level = levels.remove(levels.size() - 1).intValue();
+				if (object instanceof PdfIndirectReference) {
+					int ref = ((PdfIndirectReference)object).getNumber();
+					// a structure tree with a loop would never end
+					if (visited.get(ref))
+						continue;
+					visited.set(ref);
+					object = reader.getPdfObjectRelease(ref);
+				}
+				if (object instanceof PdfArray) {
+					PdfArray array = (PdfArray)object;
+					for (int i = array.size() - 1; i >= 0; i--) {
+						stack.add(array.getPdfObject(i));
+						levels.add(Integer.valueOf(level));
+					}
+				}
+				else if (object instanceof PdfNumber) {
+					contents++;
+				}
+				else if (object instanceof PdfDictionary) {
+					PdfDictionary dict = (PdfDictionary)object;
+					if (dict.checkType(PdfName.MCR)) {
+						contents++;
+					}
+					else if (dict.checkType(PdfName.OBJR)) {
+						objects++;
+					}
+					else {
+						elements++;
+						if (level + 1 > depth)
+							depth = level + 1;
+						count(dict.get(PdfName.S));
+						if (dict.get(PdfName.K) != null) {
+							stack.add(dict.get(PdfName.K));
+							levels.add(Integer.valueOf(level + 1));
+						}
+					}
+				}
+			}
+		}
+		catch(IOException ioe) {
+			ioe.printStackTrace();
+		}
+		finally {
+			if (reader != null)
+				reader.close();
+		}
+	}
+
+	/**
+	 * Counts an element of a structure type.
+	 * @param type	the /S entry of the element
+	 */
+	protected void count(PdfObject type) {
+		String key = String.valueOf(type);
+		int[] n = types.get(key);
+		if (n == null) {
+			n = new int[1];
+			types.put(key, n);
+		}
+		n[0]++;
+	}
+
+	/**
+	 * Passes the statistics to the listener, unless the walk was interrupted.
+	 * @see com.itextpdf.rups.model.BackgroundTask#finished()
+	 */
+	@Override
+	public void finished() {
+		if (!isInterrupted())
+			listener.statisticsFound(this);
+	}
+
+	/**
+	 * Getter for the number of structure elements.
+	 * @return	the number of elements
+	 */
+	public int getElements() {
+		return elements;
+	}
+
+	/**
+	 * Getter for the number of marked-content references.
+	 * @return	the number of marked-content references and MCIDs
+	 */
+	public int getContents() {
+		return contents;
+	}
+
+	/**
+	 * Getter for the number of object references.
+	 * @return	the number of object references
+	 */
+	public int getObjects() {
+		return objects;
+	}
+
+	/**
+	 * Getter for the depth of the structure tree.
+	 * @return	the depth of the deepest element
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * Returns the structure types, the most frequent type first.
+	 * @return	a list of structure types
+	 */
+	public List<String> getTypes() {
+		List<String> list = new ArrayList<String>(types.keySet());
+		Collections.sort(list, new Comparator<String>() {
+			public int compare(String a, String b) {
+				int na = getCount(a);
+				int nb = getCount(b);
+				return na == nb ? a.compareTo(b) : (na > nb ? -1 : 1);
+			}
+		});
+		return list;
+	}
+
+	/**
+	 * Returns the number of elements of a structure type.
+	 * @param type	a structure type, e.g. /P
+	 * @return	the number of elements of that type
+	 */
+	public int getCount(String type) {
+		int[] n = types.get(type);
+		return n == null ? 0 : n[0];
+	}
+}
@@ -0,0 +1,194 @@
+/*
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 2007-2015 iText Group NV
+ * Authors: Bruno Lowagie et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.rups.model;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs time-consuming tasks on a bounded pool of named daemon threads.
+ * Tasks that the user is waiting for (such as loading a file) have
+ * priority over tasks that can run in the background (such as building
+ * an index); tasks with the same priority run in the order they were
+ * submitted.
+ */
+public class TaskScheduler {
+
+	/** The priority of a task the user is waiting for. */
+	public static final int INTERACTIVE = 0;
+	/** The priority of a task that can run in the background. */
+	public static final int BACKGROUND = 1;
+
+	/** The scheduler that is shared by all tasks. */
+	private static TaskScheduler instance;
+
+	/** The pool of threads. */
+	protected ThreadPoolExecutor executor;
+	/** Keeps tasks with the same priority in the order they were submitted. */
+	protected AtomicLong sequence = new AtomicLong();
+
+	/**
+	 * Creates a scheduler.
+	 * @param threads	the maximum number of threads
+	 */
+	public TaskScheduler(int threads) {
+		executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+				new PriorityBlockingQueue<Runnable>(), new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "rups-task-" + count.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Gets the scheduler that is shared by all tasks.
+	 * It has one thread per processor, plus one for the task that waits
+	 * for the others (with a minimum of three).
+	 * @return	the shared scheduler
+	 */
+	public static synchronized TaskScheduler getInstance() {
+		if (instance == null)
+			instance = new TaskScheduler(Math.max(3, Runtime.getRuntime().availableProcessors() + 1));
+		return instance;
+	}
+
+	/**
+	 * Schedules a task.
+	 * @param task		the task
+	 * @param priority	INTERACTIVE or BACKGROUND
+	 * @param token		the token that cancels the task (can be null)
+	 * @return	a future that can be used to wait for the result
+	 */
+	public <V> Future<V> submit(Callable<V> task, int priority, CancellationToken token) {
+		Task<V> t = new Task<V>(task, priority, sequence.getAndIncrement(), token);
+		executor.execute(t);
+		return t;
+	}
+
+	/**
+	 * Schedules a task.
+	 * @param task		the task
+	 * @param priority	INTERACTIVE or BACKGROUND
+	 * @param token		the token that cancels the task (can be null)
+	 * @return	a future that can be used to wait until the task is done
+	 */
+	public Future<Object> submit(final Runnable task, int priority, CancellationToken token) {
+		return submit(new Callable<Object>() {
+			public Object call() {
+				task.run();
+				return null;
+			}
+		}, priority, token);
+	}
+
+	/**
+	 * A task in the queue of the scheduler, ordered by priority
+	 * and by the order in which it was submitted.
+	 */
+	protected static class Task<V> extends FutureTask<V> implements Comparable<Task<?>> {
+		/** The priority of the task. */
+		protected int priority;
+		/** The number of the task. */
+		protected long number;
+		/** The token that cancels the task. */
+		protected CancellationToken token;
+
+		/**
+		 * Creates a task.
+		 * @param callable	what has to be done
+		 * @param priority	INTERACTIVE or BACKGROUND
+		 * @param number	the order in which the task was submitted
+		 * @param token		the token that cancels the task (can be null)
+		 */
+		public Task(Callable<V> callable, int priority, long number, CancellationToken token) {
+			super(callable);
+			this.priority = priority;
+			this.number = number;
+			this.token = token;
+		}
+
+		/**
+		 * @see java.util.concurrent.FutureTask#run()
+		 */
+		@Override
+		public void run() {
+			if (token != null) {
+				if (token.isCancelled()) {
+					cancel(false);
+					return;
+				}
+				token.setThread(Thread.currentThread());
+			}
+			try {
+				super.run();
+			}
+			finally {
+				if (token != null)
+					token.setThread(null);
+				// don't let an interruption leak to the next task
+				Thread.interrupted();
+			}
+		}
+
+		/**
+		 * @see java.lang.Comparable#compareTo(java.lang.Object)
+		 */
+		public int compareTo(Task<?> task) {
+			if (priority != task.priority)
+				return priority < task.priority ? -1 : 1;
+			return number < task.number ? -1 : number == task.number ? 0 : 1;
+		}
+	}
+}
@@ -45,15 +45,18 @@ package com.itextpdf.rups.model;
 
 import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
 
 import com.itextpdf.rups.view.itext.treenodes.PdfObjectTreeNode;
 import com.itextpdf.rups.view.itext.treenodes.PdfPagesTreeNode;
+import com.itextpdf.rups.view.itext.treenodes.PdfRangeTreeNode;
 import com.itextpdf.text.pdf.PdfArray;
 import com.itextpdf.text.pdf.PdfDictionary;
 import com.itextpdf.text.pdf.PdfIndirectReference;
 import com.itextpdf.text.pdf.PdfName;
-import com.itextpdf.text.pdf.PdfNull;
 import com.itextpdf.text.pdf.PdfObject;
 
 /**
@@ -61,22 +64,29 @@ import com.itextpdf.text.pdf.PdfObject;
  */
 public class TreeNodeFactory {
 
+	/** The maximum number of children of an array or dictionary node; larger containers are split in ranges. */
+	public static final int RANGE_SIZE = 1000;
+	/** The system property with the number of indirect object nodes above which collapsed nodes are released. */
+	public static final String MAX_NODES_PROPERTY = "rups.nodes.max";
+	/** The default number of indirect object nodes above which collapsed nodes are released. */
+	public static final int DEFAULT_MAX_NODES = 20000;
 	/** The factory that can produce all indirect objects. */
 	protected IndirectObjectFactory objects;
-	/** An list containing the nodes of every indirect object. */
-	protected ArrayList<PdfObjectTreeNode> nodes = new ArrayList<PdfObjectTreeNode>();
+	/** The nodes of the indirect objects that have been asked for, by reference number. */
+	protected HashMap<Integer, PdfObjectTreeNode> nodes = new HashMap<Integer, PdfObjectTreeNode>();
+	/** The nodes that were collapsed in the tree, least recently collapsed first. */
+	protected LinkedHashSet<PdfObjectTreeNode> collapsed = new LinkedHashSet<PdfObjectTreeNode>();
+	/** The number of indirect object nodes above which collapsed nodes are released. */
+	protected int maxNodes = Math.max(1, Integer.getInteger(MAX_NODES_PROPERTY, DEFAULT_MAX_NODES).intValue());
 
 	/**
 	 * Creates a factory that can produce TreeNode objects
 	 * corresponding with PDF objects.
+	 * The nodes are only created when they are asked for.
 	 * @param objects	a factory that can produce all the indirect objects of a PDF file.
 	 */
 	public TreeNodeFactory(IndirectObjectFactory objects) {
 		this.objects = objects;
-		for (int i = 0; i < objects.size(); i++) {
-			int ref = objects.getRefByIndex(i);
-			nodes.add(PdfObjectTreeNode.getInstance(PdfNull.PDFNULL, ref));
-		}
 	}
 
 	/**
@@ -85,91 +95,352 @@ public class TreeNodeFactory {
 	 * @return	the TreeNode representing the PDF object
 	 */
 	public PdfObjectTreeNode getNode(int ref) {
-		int idx = objects.getIndexByRef(ref);
-		PdfObjectTreeNode node = nodes.get(idx);
-		if (node.getPdfObject().isNull()) {
+		PdfObjectTreeNode node = nodes.get(ref);
+		if (node == null || node.getPdfObject().isNull()) {
 			node = PdfObjectTreeNode.getInstance(objects.loadObjectByReference(ref), ref);
-			nodes.set(idx, node);
+			nodes.put(ref, node);
 		}
 		return node;
 	}
 
+	/**
+	 * Gets the number of nodes of indirect objects that are kept.
+	 * @return	a number of nodes
+	 */
+	public int getNodeCount() {
+		return nodes.size();
+	}
+
+	/**
+	 * Gets the number of indirect object nodes above which collapsed
+	 * nodes are released, as set with the system property rups.nodes.max.
+	 * @return	a number of nodes
+	 */
+	public int getMaxNodes() {
+		return maxNodes;
+	}
+
+	/**
+	 * Remembers that a node was collapsed in the tree, so that its
+	 * child nodes can be released if there are too many nodes.
+	 * @param node	the node that was collapsed
+	 * @return	the nodes whose child nodes were released
+	 */
+	public List<PdfObjectTreeNode> collapseNode(PdfObjectTreeNode node) {
+		if (node.isExpanded()) {
+			collapsed.remove(node);
+			collapsed.add(node);
+		}
+		List<PdfObjectTreeNode> released = new ArrayList<PdfObjectTreeNode>();
+		Iterator<PdfObjectTreeNode> i = collapsed.iterator();
+		while (nodes.size() > maxNodes && i.hasNext()) {
+			PdfObjectTreeNode eldest = i.next();
+			i.remove();
+			if (eldest.isExpanded()) {
+				releaseNode(eldest);
+				released.add(eldest);
+			}
+		}
+		return released;
+	}
+
+	/**
+	 * Tells the factory that a collapsed node was expanded again in the tree,
+	 * so that its child nodes are kept.
+	 * @param node	the node that was expanded
+	 */
+	public void reopenNode(PdfObjectTreeNode node) {
+		collapsed.remove(node);
+	}
+
+	/**
+	 * Releases the child nodes of a node and forgets the nodes of the
+	 * indirect objects among them, so that they (and their objects) can
+	 * be garbage collected. They are created again when they are asked for.
+	 * @param node	the node with the child nodes that can be released
+	 */
+	@SuppressWarnings("unchecked")
+	public void releaseNode(PdfObjectTreeNode node) {
+		Enumeration<PdfObjectTreeNode> descendants = node.depthFirstEnumeration();
+		PdfObjectTreeNode descendant;
+		while (descendants.hasMoreElements()) {
+			descendant = descendants.nextElement();
+			if (descendant == node)
+				continue;
+			collapsed.remove(descendant);
+			if (!descendant.isIndirectReference() && descendant.getNumber() > -1
+					&& nodes.get(descendant.getNumber()) == descendant)
+				nodes.remove(descendant.getNumber());
+		}
+		node.releaseChildren();
+	}
+
 	/**
 	 * Creates the Child TreeNode objects for a PDF object TreeNode.
+	 * Only the direct children are created; their own children are
+	 * created when they are expanded in turn (for instance when the
+	 * node is expanded in the PdfTree). Until then, a node with an
+	 * array, a dictionary or a reference shows an expand handle.
 	 * @param node	the parent node
 	 */
 	public void expandNode(PdfObjectTreeNode node) {
-		if (node.getChildCount() > 0) {
+		if (node.isExpanded() || node.getChildCount() > 0) {
 			return;
 		}
 		PdfObject object = node.getPdfObject();
-		PdfObjectTreeNode leaf;
+		if (object == null) {
+			return;
+		}
+		node.setExpanded(true);
+		if (node instanceof PdfRangeTreeNode) {
+			PdfRangeTreeNode range = (PdfRangeTreeNode)node;
+			if (range.getKeys() == null)
+				addElements(node, (PdfArray)object, range.getFrom(), range.getTo());
+			else
+				addEntries(node, (PdfDictionary)object, range.getKeys(), range.getFrom(), range.getTo());
+			return;
+		}
 		switch (object.type()) {
 		case PdfObject.INDIRECT:
 			PdfIndirectReference ref = (PdfIndirectReference)object;
-			leaf = getNode(ref.getNumber());
+			PdfObjectTreeNode leaf = getNode(ref.getNumber());
 			addNodes(node, leaf);
 			if (leaf instanceof PdfPagesTreeNode)
 				expandNode(leaf);
 			return;
 		case PdfObject.ARRAY:
 			PdfArray array = (PdfArray)object;
-			for (Iterator<PdfObject> it = array.listIterator(); it.hasNext(); ) {
-				leaf = PdfObjectTreeNode.getInstance(it.next());
-				addNodes(node, leaf);
-				expandNode(leaf);
-			}
+			addElements(node, array, 0, array.size());
 			return;
 		case PdfObject.DICTIONARY:
 		case PdfObject.STREAM:
 			PdfDictionary dict = (PdfDictionary)object;
-			for (PdfName element : dict.getKeys()) {
-				leaf = PdfObjectTreeNode.getInstance(dict, element);
-				addNodes(node, leaf);
-				expandNode(leaf);
-			}
+			PdfName[] keys = dict.getKeys().toArray(new PdfName[dict.size()]);
+			addEntries(node, dict, keys, 0, keys.length);
 			return;
 		}
 	}
 
+	/**
+	 * Gets the number of entries per range if there are too many entries
+	 * to add them as children of one node.
+	 * @param count	the number of entries
+	 * @return	0 if the entries can be added as children, or the number of entries per range
+	 */
+	private static int getRangeSize(int count) {
+		if (count <= RANGE_SIZE)
+			return 0;
+		int span = RANGE_SIZE;
+		while ((count + span - 1) / span > RANGE_SIZE)
+			span *= RANGE_SIZE;
+		return span;
+	}
+
+	/**
+	 * Adds the elements of an array (or ranges of elements) to a node.
+	 * @param node	the parent node
+	 * @param array	the array
+	 * @param from	the index of the first element
+	 * @param to	the index after the last element
+	 */
+	private void addElements(PdfObjectTreeNode node, PdfArray array, int from, int to) {
+		int span = getRangeSize(to - from);
+		if (span > 0) {
+			for (int i = from; i < to; i += span)
+				addNodes(node, new PdfRangeTreeNode(array, i, Math.min(i + span, to)));
+			return;
+		}
+		for (int i = from; i < to; i++)
+			addNodes(node, PdfObjectTreeNode.getInstance(array.getPdfObject(i)));
+	}
+
+	/**
+	 * Adds the entries of a dictionary (or ranges of entries) to a node.
+	 * @param node	the parent node
+	 * @param dict	the dictionary
+	 * @param keys	the keys of the dictionary
+	 * @param from	the index of the first key
+	 * @param to	the index after the last key
+	 */
+	private void addEntries(PdfObjectTreeNode node, PdfDictionary dict, PdfName[] keys, int from, int to) {
+		int span = getRangeSize(to - from);
+		if (span > 0) {
+			for (int i = from; i < to; i += span)
+				addNodes(node, new PdfRangeTreeNode(dict, keys, i, Math.min(i + span, to)));
+			return;
+		}
+		for (int i = from; i < to; i++)
+			addNodes(node, PdfObjectTreeNode.getInstance(dict, keys[i]));
+	}
+
+	/**
+	 * Follows a path of references from the trailer, creating the nodes
+	 * along the way, so that the node of the last object on the path is
+	 * reachable from the root of the tree.
+	 * @param root	the trailer node
+	 * @param path	object numbers, starting with an object the trailer refers to
+	 * 				(see ReferencePathIndex)
+	 * @return	the node of the last object on the path, or null if the path can't be followed
+	 */
+	public PdfObjectTreeNode getNodeOnPath(PdfObjectTreeNode root, int[] path) {
+		if (path == null)
+			return null;
+		PdfObjectTreeNode node = root;
+		for (int ref : path) {
+			PdfObjectTreeNode reference = findReference(node, ref);
+			if (reference == null)
+				return null;
+			expandNode(reference);
+			if (reference.getChildCount() == 0)
+				return null;
+			node = (PdfObjectTreeNode)reference.getFirstChild();
+		}
+		return node;
+	}
+
+	/**
+	 * Looks for a reference to an object among the direct objects inside
+	 * the object of a node, creating their nodes if necessary; other
+	 * references aren't followed.
+	 * @param node	the node of an object
+	 * @param ref	the number of the object that is referred to
+	 * @return	the node with the reference, or null if there's no such node
+	 */
+	private PdfObjectTreeNode findReference(PdfObjectTreeNode node, int ref) {
+		List<PdfObjectTreeNode> stack = new ArrayList<PdfObjectTreeNode>();
+		stack.add(node);
+		while (!stack.isEmpty()) {
+			PdfObjectTreeNode current = stack.remove(stack.size() - 1);
+			expandNode(current);
+			for (int i = current.getChildCount() - 1; i >= 0; i--) {
+				PdfObjectTreeNode child = (PdfObjectTreeNode)current.getChildAt(i);
+				if (child.isIndirectReference()) {
+					if (child.getNumber() == ref)
+						return child;
+				}
+				else if (child.isArray() || child.isDictionary() || child.isStream()) {
+					stack.add(child);
+				}
+			}
+		}
+		return null;
+	}
+
 	/**
 	 * Finds a specific child of dictionary node.
+	 * If the node is a reference, the entry is looked up in the
+	 * dictionary it refers to. Dictionary entries are found by key,
+	 * without expanding the other entries.
 	 * @param	node	the node with a dictionary among its children
 	 * @param	key		the key of the item corresponding with the node we need
 	 */
 	@SuppressWarnings("unchecked")
-    public PdfObjectTreeNode getChildNode(PdfObjectTreeNode node, PdfName key) {
+	public PdfObjectTreeNode getChildNode(PdfObjectTreeNode node, PdfName key) {
+		expandNode(node);
+		while (node.isIndirectReference() && node.getChildCount() > 0) {
+			node = (PdfObjectTreeNode)node.getFirstChild();
+			expandNode(node);
+		}
+		if (node.getChildCount() > 0 && node.getFirstChild() instanceof PdfRangeTreeNode) {
+			// only the range with the key is expanded
+			for (int i = 0; i < node.getChildCount(); i++) {
+				PdfRangeTreeNode range = (PdfRangeTreeNode)node.getChildAt(i);
+				if (range.containsKey(key))
+					return getChildNode(range, key);
+			}
+			return null;
+		}
+		if (node.isDictionary()) {
+			return getEntryNode(node.getEntry(key));
+		}
 		Enumeration<PdfObjectTreeNode> children = node.breadthFirstEnumeration();
 		PdfObjectTreeNode child;
 		while (children.hasMoreElements()) {
 			child = children.nextElement();
 			if (child.isDictionaryNode(key)) {
-				if (child.isIndirectReference()) {
-					expandNode(child);
-					child = (PdfObjectTreeNode)child.getFirstChild();
-				}
-				expandNode(child);
-				return child;
+				return getEntryNode(child);
 			}
 		}
 		return null;
 	}
 
 	/**
-	 * Tries adding a child node to a parent node without
-	 * throwing an exception. Normally, if the child node is already
-	 * added as one of the ancestors, an IllegalArgumentException is
-	 * thrown (to avoid an endless loop). Loops like this are allowed
-	 * in PDF, not in a JTree.
+	 * Follows a path of dictionary keys and array indexes inside an object,
+	 * creating the nodes along the way. Only the ranges that contain the
+	 * path are expanded; references aren't followed.
+	 * @param node	the node of an indirect object
+	 * @param steps	keys (PdfName) and indexes (Integer)
+	 * @return	the node at the end of the path, or the last node that
+	 * 			was found if the path can't be followed to the end
+	 */
+	public PdfObjectTreeNode getNodeInObject(PdfObjectTreeNode node, Object[] steps) {
+		for (Object step : steps) {
+			expandNode(node);
+			int offset = 0;
+			while (node.getChildCount() > 0 && node.getFirstChild() instanceof PdfRangeTreeNode) {
+				PdfRangeTreeNode found = null;
+				for (int i = 0; i < node.getChildCount() && found == null; i++) {
+					PdfRangeTreeNode range = (PdfRangeTreeNode)node.getChildAt(i);
+					if (step instanceof Integer
+							? range.getFrom() <= (Integer)step && (Integer)step < range.getTo()
+							: range.containsKey((PdfName)step))
+						found = range;
+				}
+				if (found == null)
+					return node;
+				node = found;
+				offset = found.getFrom();
+				expandNode(node);
+			}
+			PdfObjectTreeNode child = null;
+			if (step instanceof Integer) {
+				int i = (Integer)step - offset;
+				if (node.isArray() && i >= 0 && i < node.getChildCount())
+					child = (PdfObjectTreeNode)node.getChildAt(i);
+			}
+			else {
+				child = node.getEntry((PdfName)step);
+			}
+			if (child == null)
+				return node;
+			node = child;
+		}
+		return node;
+	}
+
+	/**
+	 * Expands the node of a dictionary entry; if the entry is
+	 * a reference, the node of the object it refers to is returned.
+	 * @param	child	the node of a dictionary entry (or null)
+	 * @return	the node with the value of the entry, or null for a
+	 * 			reference to one of its own ancestors
+	 */
+	private PdfObjectTreeNode getEntryNode(PdfObjectTreeNode child) {
+		if (child == null)
+			return null;
+		if (child.isIndirectReference()) {
+			expandNode(child);
+			if (child.getChildCount() == 0)
+				return null;
+			child = (PdfObjectTreeNode)child.getFirstChild();
+		}
+		expandNode(child);
+		return child;
+	}
+
+	/**
+	 * Adds a child node to a parent node, unless the child is
+	 * already one of the ancestors of the parent. Loops like this
+	 * are allowed in PDF, not in a JTree; the parent is marked as
+	 * recursive instead. Only the nodes of indirect objects can be
+	 * shared, so new nodes are added without walking up the tree.
 	 * @param parent	the parent node
 	 * @param child		a child node
 	 */
 	private void addNodes(PdfObjectTreeNode parent, PdfObjectTreeNode child) {
-		try {
-			parent.add(child);
-		}
-		catch(IllegalArgumentException iae) {
+		if (parent.isDescendantOf(child))
 			parent.setRecursive(true);
-		}
+		else
+			parent.addChild(child);
 	}
 }
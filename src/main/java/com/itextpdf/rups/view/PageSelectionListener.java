@@ -55,7 +55,8 @@ public interface PageSelectionListener {
 	 * Goes to a specific page number in a document.
 	 * @param	pageNumber
 	 * @return	the resulting page number.
-	 * 		Can be different from pageNumber if pageNumber doesn't exist.
+	 * 		Can be different from pageNumber if pageNumber doesn't exist
+	 * 		(-1 if no page was selected).
 	 */
 	public int gotoPage(int pageNumber);
 }
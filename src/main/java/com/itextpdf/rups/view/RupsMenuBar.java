@@ -72,6 +72,14 @@ public class RupsMenuBar extends JMenuBar implements Observer {
 	public static final String CLOSE = "Close";
     /** Caption for "Save as..." */
     public static final String SAVE_AS = "Save as...";
+    /** Caption for "Lazy object loading". */
+    public static final String LAZY = "Lazy object loading";
+    /** Caption for "Progressive loading". */
+    public static final String PROGRESSIVE = "Progressive loading";
+	/** Caption for the navigate menu. */
+	public static final String NAVIGATE_MENU = "Navigate";
+	/** Caption for "Go to page". */
+	public static final String GO_TO_PAGE = "Go to page...";
 	/** Caption for the help menu. */
 	public static final String HELP_MENU = "Help";
 	/** Caption for "Help about". */
@@ -106,6 +114,15 @@ public class RupsMenuBar extends JMenuBar implements Observer {
 		addItem(file, CLOSE, new FileCloseAction(observable), KeyStroke.getKeyStroke('W', KeyEvent.CTRL_DOWN_MASK));
         addItem(file, SAVE_AS, fileSaverAction, KeyStroke.getKeyStroke('S', KeyEvent.CTRL_DOWN_MASK));
         file.addSeparator();
+        JCheckBoxMenuItem lazy = new JCheckBoxMenuItem(LAZY);
+        lazy.setToolTipText("Only read the cross-reference table when opening a file; objects are parsed when they are shown");
+        file.add(lazy);
+        items.put(LAZY, lazy);
+        JCheckBoxMenuItem progressive = new JCheckBoxMenuItem(PROGRESSIVE, true);
+        progressive.setToolTipText("Show the document while the cross-reference table is still being scanned");
+        file.add(progressive);
+        items.put(PROGRESSIVE, progressive);
+        file.addSeparator();
         addItem(file, OPENINVIEWER, new ActionListener() {
             public void actionPerformed(ActionEvent e) {
                 if (Desktop.isDesktopSupported()) {
@@ -124,6 +141,24 @@ public class RupsMenuBar extends JMenuBar implements Observer {
             }
         }, KeyStroke.getKeyStroke('O', KeyEvent.ALT_DOWN_MASK));
         add(file);
+        JMenu navigate = new JMenu(NAVIGATE_MENU);
+        addItem(navigate, GO_TO_PAGE, new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                String input = JOptionPane.showInputDialog(RupsMenuBar.this, "Page number:", GO_TO_PAGE, JOptionPane.QUESTION_MESSAGE);
+                if ( input == null ) {
+                    return;
+                }
+                try {
+                    int pageNumber = Integer.parseInt(input.trim());
+                    if ( ((RupsController)observable).gotoPage(pageNumber) < 0 ) {
+                        JOptionPane.showMessageDialog(RupsMenuBar.this, "There's no page " + pageNumber + ".", GO_TO_PAGE, JOptionPane.ERROR_MESSAGE);
+                    }
+                } catch (NumberFormatException nfe) {
+                    JOptionPane.showMessageDialog(RupsMenuBar.this, input + " isn't a page number.", GO_TO_PAGE, JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }, KeyStroke.getKeyStroke('G', KeyEvent.CTRL_DOWN_MASK));
+        add(navigate);
         add(Box.createGlue());
         JMenu help = new JMenu(HELP_MENU);
         addItem(help, ABOUT, message);
@@ -149,6 +184,22 @@ public class RupsMenuBar extends JMenuBar implements Observer {
 		}
 	}
 	
+	/**
+	 * Tells you if files should be opened in lazy mode.
+	 * @return	true if the objects of a file should only be parsed when they are asked for
+	 */
+	public boolean isLazyLoading() {
+		return items.get(LAZY).isSelected();
+	}
+	
+	/**
+	 * Tells you if files should be opened in progressive mode.
+	 * @return	true if the views should be shown while the objects are scanned
+	 */
+	public boolean isProgressiveLoading() {
+		return items.get(PROGRESSIVE).isSelected();
+	}
+	
 	/**
 	 * Create an item with a certain caption and a certain action,
 	 * then add the item to a menu.
@@ -178,6 +229,7 @@ public class RupsMenuBar extends JMenuBar implements Observer {
 		enableItem(CLOSE, enabled);
         enableItem(SAVE_AS, enabled);
         enableItem(OPENINVIEWER, enabled);
+        enableItem(GO_TO_PAGE, enabled);
 	}
 	
 	/**
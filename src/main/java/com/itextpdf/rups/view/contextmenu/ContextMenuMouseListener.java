@@ -79,6 +79,14 @@ public class ContextMenuMouseListener extends MouseAdapter {
         showMenuIfPopupTrigger(e);
     }
 
+    /**
+     * Getter for the popup menu.
+     * @return the popup menu that is shown by this listener
+     */
+    protected JPopupMenu getPopup() {
+        return popup;
+    }
+
     /**
      * This method should be implemented appropriately by subclasses
      * @param event
@@ -0,0 +1,152 @@
+/*
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 2007-2015 iText Group NV
+ * Authors: Bruno Lowagie et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.rups.view.contextmenu;
+
+import com.itextpdf.rups.controller.PdfReaderController;
+import com.itextpdf.rups.view.itext.PdfTree;
+import com.itextpdf.rups.view.itext.treenodes.PdfObjectTreeNode;
+import com.itextpdf.text.pdf.PdfDictionary;
+import com.itextpdf.text.pdf.PdfName;
+import com.itextpdf.text.pdf.PdfObject;
+import com.itextpdf.text.pdf.PdfReader;
+
+import javax.swing.*;
+import javax.swing.tree.TreePath;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+
+/**
+ * Finds the structure element of a marked-content sequence or of an object
+ * with a /StructParent entry in the /ParentTree, and selects it.
+ * In the PdfTree, the key is taken from the selected object; elsewhere,
+ * the user is asked for a page and an MCID, or for a /StructParent key.
+ */
+public class FindStructureElementAction extends AbstractRupsAction {
+
+    /** Serial version uid */
+    private static final long serialVersionUID = 2984717436127342652L;
+
+    /** The controller that looks up and selects the structure element. */
+    protected PdfReaderController controller;
+
+    public FindStructureElementAction(String name, Component invoker, PdfReaderController controller) {
+        super(name, invoker);
+        this.controller = controller;
+    }
+
+    /**
+     * Gets the object of a node if it has a /StructParent or /StructParents entry.
+     * @param node a node of the PdfTree
+     * @return the dictionary, or null if it isn't part of the structure
+     */
+    public static PdfDictionary getTaggedObject(PdfObjectTreeNode node) {
+        if (node == null) {
+            return null;
+        }
+        PdfObject object = PdfReader.getPdfObjectRelease(node.getPdfObject());
+        if (!(object instanceof PdfDictionary)) {
+            return null;
+        }
+        PdfDictionary dict = (PdfDictionary) object;
+        if (dict.getAsNumber(PdfName.STRUCTPARENT) == null && dict.getAsNumber(PdfName.STRUCTPARENTS) == null) {
+            return null;
+        }
+        return dict;
+    }
+
+    public void actionPerformed(ActionEvent e) {
+        String title = (String) getValue(NAME);
+        int key;
+        int mcid = -1;
+        String input = null;
+        try {
+            if (invoker instanceof PdfTree) {
+                TreePath path = ((PdfTree) invoker).getSelectionPath();
+                PdfDictionary dict = path == null ? null : getTaggedObject((PdfObjectTreeNode) path.getLastPathComponent());
+                if (dict == null) {
+                    return;
+                }
+                if (dict.getAsNumber(PdfName.STRUCTPARENT) != null) {
+                    key = dict.getAsNumber(PdfName.STRUCTPARENT).intValue();
+                }
+                else {
+                    key = dict.getAsNumber(PdfName.STRUCTPARENTS).intValue();
+                    input = JOptionPane.showInputDialog(invoker, "MCID:", title, JOptionPane.QUESTION_MESSAGE);
+                    if (input == null) {
+                        return;
+                    }
+                    mcid = Integer.parseInt(input.trim());
+                }
+            }
+            else {
+                input = JOptionPane.showInputDialog(invoker, "Page and MCID (for instance 3:0), or a StructParent key:", title, JOptionPane.QUESTION_MESSAGE);
+                if (input == null) {
+                    return;
+                }
+                int colon = input.indexOf(':');
+                if (colon < 0) {
+                    key = Integer.parseInt(input.trim());
+                }
+                else {
+                    int pageNumber = Integer.parseInt(input.substring(0, colon).trim());
+                    mcid = Integer.parseInt(input.substring(colon + 1).trim());
+                    key = controller.getStructParents(pageNumber);
+                    if (key < 0) {
+                        JOptionPane.showMessageDialog(invoker, "Page " + pageNumber + " has no marked content in the structure tree.", title, JOptionPane.ERROR_MESSAGE);
+                        return;
+                    }
+                }
+            }
+        } catch (NumberFormatException nfe) {
+            JOptionPane.showMessageDialog(invoker, input + " isn't a number.", title, JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        int ref = controller.findStructureElement(key, mcid);
+        if (ref < 0) {
+            JOptionPane.showMessageDialog(invoker, "No structure element found in the ParentTree.", title, JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        controller.selectStructureElement(ref);
+    }
+}
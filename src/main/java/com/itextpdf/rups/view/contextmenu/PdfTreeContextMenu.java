@@ -43,6 +43,8 @@
  */
 package com.itextpdf.rups.view.contextmenu;
 
+import com.itextpdf.rups.controller.PdfReaderController;
+
 import javax.swing.*;
 import java.awt.*;
 
@@ -54,7 +56,14 @@ import java.awt.*;
 
 public class PdfTreeContextMenu {
 
+    /** Caption of the menu item that looks up a structure element. */
+    public static final String FIND_STRUCTURE_ELEMENT = "Find Structure Element for MCID/StructParent";
+
     public static JPopupMenu getPopupMenu(final Component component) {
+        return getPopupMenu(component, null);
+    }
+
+    public static JPopupMenu getPopupMenu(final Component component, PdfReaderController controller) {
         JPopupMenu popup = new JPopupMenu();
 
         JMenuItem inspect = new JMenuItem();
@@ -71,6 +80,13 @@ public class PdfTreeContextMenu {
         saveToFile.setText("Save to File");
         saveToFile.setAction(new SaveToFilePdfTreeAction("Save to File", component, false));
         popup.add(saveToFile);
+
+        if ( controller != null ) {
+            JMenuItem find = new JMenuItem();
+            find.setText(FIND_STRUCTURE_ELEMENT);
+            find.setAction(new FindStructureElementAction(FIND_STRUCTURE_ELEMENT, component, controller));
+            popup.add(find);
+        }
         return popup;
     }
 }
@@ -51,10 +51,12 @@ import com.itextpdf.text.pdf.PdfName;
 import javax.swing.*;
 import javax.swing.tree.TreePath;
 import javax.swing.tree.TreeSelectionModel;
+import java.awt.*;
 import java.awt.event.MouseEvent;
 
 /**
- * Additional check to see whether the selected node is a Stream (and not an image stream)
+ * Additional check to see whether the selected node is a Stream (and not an image stream),
+ * or an object with a /StructParent(s) entry
  *
  * @author Michael Demey
  */
@@ -80,12 +82,16 @@ public class PdfTreeContextMenuMouseListener extends ContextMenuMouseListener {
 
         PdfObjectTreeNode lastPath = ((PdfObjectTreeNode) paths[0].getLastPathComponent());
 
-        if ( !lastPath.isStream() ) {
-            return false;
-        }
+        // the stream actions need a stream that isn't an image
+        boolean stream = lastPath.isStream()
+                && ((PRStream) lastPath.getPdfObject()).get(PdfName.SUBTYPE) != PdfName.IMAGE;
+        boolean tagged = FindStructureElementAction.getTaggedObject(lastPath) != null;
 
-        // Make sure the selected item isn't an image
-        PRStream stream = (PRStream) lastPath.getPdfObject();
-        return stream.get(PdfName.SUBTYPE) != PdfName.IMAGE;
+        for ( Component item : getPopup().getComponents() ) {
+            if ( item instanceof JMenuItem ) {
+                item.setEnabled(((JMenuItem) item).getAction() instanceof FindStructureElementAction ? tagged : stream);
+            }
+        }
+        return stream || tagged;
     }
 }
@@ -44,6 +44,9 @@
 package com.itextpdf.rups.view.icons;
 
 import java.awt.Component;
+import java.awt.Dimension;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 import javax.swing.JTree;
 import javax.swing.tree.DefaultTreeCellRenderer;
@@ -51,12 +54,66 @@ import javax.swing.tree.DefaultTreeCellRenderer;
 
 /**
  * Renders the tree cells with the correct icon.
+ * In large-model mode, the preferred size of every node is cached,
+ * and the tree uses a fixed row height, so that it doesn't have to
+ * measure all the rows it has shown before.
  */
 public class IconTreeCellRenderer extends DefaultTreeCellRenderer {
 
+	/** The system property that turns the large-model mode off if set to false. */
+	public static final String LARGE_MODEL_PROPERTY = "rups.tree.largemodel";
+
 	/** a serial version UID. */
 	private static final long serialVersionUID = 6513462839504342074L;
 
+	/** The preferred sizes of the nodes that were rendered, with their text (null if sizes aren't cached). */
+	protected Map<Object, CachedSize> sizes;
+	/** The node that is being rendered. */
+	protected Object value;
+
+	/**
+	 * Creates a renderer that doesn't cache the sizes of the nodes.
+	 */
+	public IconTreeCellRenderer() {
+		this(false);
+	}
+
+	/**
+	 * Creates a renderer.
+	 * @param cacheSizes	true if the preferred size of each node should be cached
+	 */
+	public IconTreeCellRenderer(boolean cacheSizes) {
+		super();
+		if (cacheSizes)
+			sizes = new WeakHashMap<Object, CachedSize>();
+	}
+
+	/**
+	 * Tells you if trees are shown in large-model mode,
+	 * which is the case unless the system property rups.tree.largemodel is false.
+	 * @return	true in large-model mode
+	 */
+	public static boolean isLargeModel() {
+		return !"false".equalsIgnoreCase(System.getProperty(LARGE_MODEL_PROPERTY));
+	}
+
+	/**
+	 * Sets an IconTreeCellRenderer on a tree. In large-model mode, the
+	 * renderer caches the sizes of the nodes, and the tree gets a fixed
+	 * row height and only keeps the state of the expanded nodes.
+	 * @param tree	the tree
+	 */
+	public static void install(JTree tree) {
+		boolean large = isLargeModel();
+		IconTreeCellRenderer renderer = new IconTreeCellRenderer(large);
+		tree.setCellRenderer(renderer);
+		if (large) {
+			Component sample = renderer.getTreeCellRendererComponent(tree, "Xg", false, false, true, 0, false);
+			tree.setRowHeight(Math.max(sample.getPreferredSize().height, 18));
+			tree.setLargeModel(true);
+		}
+	}
+
 	/**
 	 * @see javax.swing.tree.DefaultTreeCellRenderer#getTreeCellRendererComponent(javax.swing.JTree, java.lang.Object, boolean, boolean, boolean, int, boolean)
 	 */
@@ -64,10 +121,53 @@ public class IconTreeCellRenderer extends DefaultTreeCellRenderer {
 			boolean selected, boolean expanded, boolean leaf, int row,
 			boolean hasFocus) {
 		super.getTreeCellRendererComponent(tree, value, selected, expanded, leaf, row, hasFocus);
+		this.value = value;
 		if (value instanceof IconTreeNode) {
 			IconTreeNode node = (IconTreeNode) value;
 			setIcon(node.getIcon());
 		}
 		return this;
 	}
-}
\ No newline at end of file
+
+	/**
+	 * If sizes are cached, the size of a node is only measured again if its text has changed.
+	 * @see javax.swing.tree.DefaultTreeCellRenderer#getPreferredSize()
+	 */
+	@Override
+	public Dimension getPreferredSize() {
+		if (sizes == null || value == null)
+			return super.getPreferredSize();
+		String text = getText();
+		CachedSize cached = sizes.get(value);
+		if (cached != null && cached.icon == getIcon() && (text == null ? cached.text == null : text.equals(cached.text)))
+			return new Dimension(cached.size);
+		Dimension size = super.getPreferredSize();
+		if (size != null)
+			sizes.put(value, new CachedSize(text, getIcon(), size));
+		return size;
+	}
+
+	/**
+	 * The preferred size of a node, and the text and icon it was measured with.
+	 */
+	protected static class CachedSize {
+		/** The text of the node. */
+		protected String text;
+		/** The icon of the node. */
+		protected Object icon;
+		/** The preferred size. */
+		protected Dimension size;
+
+		/**
+		 * Remembers the size of a node.
+		 * @param text	the text of the node
+		 * @param icon	the icon of the node
+		 * @param size	the preferred size
+		 */
+		protected CachedSize(String text, Object icon, Dimension size) {
+			this.text = text;
+			this.icon = icon;
+			this.size = new Dimension(size);
+		}
+	}
+}
@@ -89,7 +89,7 @@ public class FormTree extends JTree implements TreeSelectionListener, Observer {
 	public FormTree(PdfReaderController controller) {
 		super();
 		this.controller = controller;
-		setCellRenderer(new IconTreeCellRenderer());
+		IconTreeCellRenderer.install(this);
 		setModel(new DefaultTreeModel(new FormTreeNode()));
 		addTreeSelectionListener(this);
 		xfaTree = new XfaTree();
@@ -0,0 +1,148 @@
+/*
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 2007-2015 iText Group NV
+ * Authors: Bruno Lowagie et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.rups.view.itext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Observable;
+import java.util.Observer;
+
+import javax.swing.JTable;
+
+import com.itextpdf.rups.controller.PdfReaderController;
+import com.itextpdf.rups.model.ObjectLoader;
+import com.itextpdf.rups.model.ObjectTypeIndex;
+import com.itextpdf.rups.view.models.JTableAutoModel;
+import com.itextpdf.rups.view.models.JTableAutoModelInterface;
+
+/**
+ * A JTable that summarizes the indirect objects of a PDF file:
+ * the number of objects and the total stream length per type
+ * and per filter, as recorded while the objects were scanned.
+ */
+public class ObjectStatisticsTable extends JTable implements JTableAutoModelInterface, Observer {
+
+	/** The rows of the summary. */
+	protected List<ObjectTypeIndex.Summary> rows = new ArrayList<ObjectTypeIndex.Summary>();
+	/** The loader of the objects that are summarized. */
+	protected ObjectLoader loader;
+
+	/**
+	 * @see java.util.Observer#update(java.util.Observable, java.lang.Object)
+	 */
+	public void update(Observable observable, Object obj) {
+		if (obj == null) {
+			loader = null;
+			rows = new ArrayList<ObjectTypeIndex.Summary>();
+			setModel(new JTableAutoModel(this));
+			return;
+		}
+		if (observable instanceof PdfReaderController
+				&& obj instanceof ObjectLoader) {
+			loader = (ObjectLoader)obj;
+			rows = loader.getObjects().getTypeIndex().summarize();
+			setModel(new JTableAutoModel(this));
+		}
+		if (obj instanceof ObjectLoader.Published
+				&& ((ObjectLoader.Published)obj).isFinished()
+				&& ((ObjectLoader.Published)obj).getLoader() == loader) {
+			rows = loader.getObjects().getTypeIndex().summarize();
+			setModel(new JTableAutoModel(this));
+		}
+	}
+
+	/**
+	 * @see javax.swing.JTable#getColumnCount()
+	 */
+	public int getColumnCount() {
+		return 4;
+	}
+
+	/**
+	 * @see javax.swing.JTable#getRowCount()
+	 */
+	public int getRowCount() {
+		return rows.size();
+	}
+
+	/**
+	 * @see javax.swing.JTable#getValueAt(int, int)
+	 */
+	public Object getValueAt(int rowIndex, int columnIndex) {
+		ObjectTypeIndex.Summary row = rows.get(rowIndex);
+		switch (columnIndex) {
+		case 0:
+			return row.getGroup();
+		case 1:
+			return row.getName();
+		case 2:
+			return row.getCount();
+		case 3:
+			return row.getBytes();
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * @see javax.swing.JTable#getColumnName(int)
+	 */
+	public String getColumnName(int columnIndex) {
+		switch (columnIndex) {
+		case 0:
+			return "Group";
+		case 1:
+			return "Name";
+		case 2:
+			return "Objects";
+		case 3:
+			return "Bytes";
+		default:
+			return null;
+		}
+	}
+
+	/** A serial version UID. */
+	private static final long serialVersionUID = 2318370442787463591L;
+}
@@ -43,6 +43,8 @@
  */
 package com.itextpdf.rups.view.itext;
 
+import java.awt.event.HierarchyEvent;
+import java.awt.event.HierarchyListener;
 import java.util.Observable;
 import java.util.Observer;
 
@@ -53,29 +55,38 @@ import javax.swing.tree.DefaultTreeModel;
 
 import com.itextpdf.rups.controller.PdfReaderController;
 import com.itextpdf.rups.model.ObjectLoader;
-import com.itextpdf.rups.model.TreeNodeFactory;
 import com.itextpdf.rups.view.icons.IconTreeCellRenderer;
 import com.itextpdf.rups.view.itext.treenodes.OutlineTreeNode;
-import com.itextpdf.rups.view.itext.treenodes.PdfObjectTreeNode;
-import com.itextpdf.rups.view.itext.treenodes.PdfTrailerTreeNode;
+import com.itextpdf.rups.view.models.OutlineTreeModel;
+import com.itextpdf.text.pdf.PdfDictionary;
 import com.itextpdf.text.pdf.PdfName;
+import com.itextpdf.text.pdf.PdfReader;
 
 /**
  * A JTree visualizing information about the outlines (aka bookmarks) of
- * the PDF file (if any).
+ * the PDF file (if any). The outline is only read when the tree is shown,
+ * and the children of a bookmark only when it is expanded.
  */
 public class OutlineTree extends JTree implements TreeSelectionListener, Observer {
 
 	/** Nodes in the FormTree correspond with nodes in the main PdfTree. */
 	protected PdfReaderController controller;
+	/** The reader of a document whose outline hasn't been read yet. */
+	protected PdfReader pending;
 	
 	/** Creates a new outline tree. */
 	public OutlineTree(PdfReaderController controller) {
 		super();
 		this.controller = controller;
-		setCellRenderer(new IconTreeCellRenderer());
+		IconTreeCellRenderer.install(this);
 		setModel(new DefaultTreeModel(new OutlineTreeNode()));
 		addTreeSelectionListener(this);
+		addHierarchyListener(new HierarchyListener() {
+			public void hierarchyChanged(HierarchyEvent e) {
+				if ((e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) != 0 && isShowing())
+					loadOutline();
+			}
+		});
 	}
 
 	/**
@@ -83,41 +94,31 @@ public class OutlineTree extends JTree implements TreeSelectionListener, Observe
 	 */
 	public void update(Observable observable, Object obj) {
 		if (obj == null) {
+			pending = null;
 			setModel(new DefaultTreeModel(new OutlineTreeNode()));
 			repaint();
 			return;
 		}
 		if (obj instanceof ObjectLoader) {
-			ObjectLoader loader = (ObjectLoader)obj;
-			TreeNodeFactory factory = loader.getNodes();
-			PdfTrailerTreeNode trailer = controller.getPdfTree().getRoot();
-			PdfObjectTreeNode catalog = factory.getChildNode(trailer, PdfName.ROOT);
-			PdfObjectTreeNode outline = factory.getChildNode(catalog, PdfName.OUTLINES);
-			if (outline == null) {
-				return;
-			}
-			OutlineTreeNode root = new OutlineTreeNode();
-			PdfObjectTreeNode first = factory.getChildNode(outline, PdfName.FIRST);
-			if (first != null)
-			    loadOutline(factory, root, first);
-			setModel(new DefaultTreeModel(root));
+			pending = ((ObjectLoader)obj).getReader();
+			setModel(new DefaultTreeModel(new OutlineTreeNode()));
+			if (isShowing())
+				loadOutline();
 		}
 	}
-	
+
 	/**
-	 * Method that can be used recursively to load the outline hierarchy into the tree.
+	 * Reads the outline dictionary of the document, if that hasn't happened yet.
 	 */
-	private void loadOutline(TreeNodeFactory factory, OutlineTreeNode parent, PdfObjectTreeNode child) {
-		OutlineTreeNode childnode = new OutlineTreeNode(child);
-		parent.add(childnode);
-		PdfObjectTreeNode first = factory.getChildNode(child, PdfName.FIRST);
-		if (first != null) {
-			loadOutline(factory, childnode, first);
-		}
-		PdfObjectTreeNode next = factory.getChildNode(child, PdfName.NEXT);
-		if (next != null) {
-			loadOutline(factory, parent, next);
-		}
+	protected void loadOutline() {
+		if (pending == null)
+			return;
+		PdfReader reader = pending;
+		pending = null;
+		PdfDictionary outlines = reader.getCatalog().getAsDict(PdfName.OUTLINES);
+		if (outlines == null)
+			return;
+		setModel(new OutlineTreeModel(new OutlineTreeNode(outlines), reader));
 	}
 	
 	/**
@@ -127,9 +128,8 @@ public class OutlineTree extends JTree implements TreeSelectionListener, Observe
 		if (controller == null)
 			return;
 		OutlineTreeNode selectednode = (OutlineTreeNode)this.getLastSelectedPathComponent();
-		PdfObjectTreeNode node = selectednode.getCorrespondingPdfObjectNode();
-		if (node != null)
-			controller.selectNode(node);
+		if (selectednode != null && selectednode.getNumber() > -1)
+			controller.selectNode(selectednode.getNumber());
 	}
 
 	/** A serial version uid. */
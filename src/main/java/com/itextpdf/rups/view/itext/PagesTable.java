@@ -45,36 +45,37 @@ package com.itextpdf.rups.view.itext;
 
 import com.itextpdf.rups.controller.PdfReaderController;
 import com.itextpdf.rups.model.ObjectLoader;
-import com.itextpdf.rups.model.TreeNodeFactory;
+import com.itextpdf.rups.model.PageLabelIndex;
+import com.itextpdf.rups.model.PageTreeWalker;
 import com.itextpdf.rups.view.PageSelectionListener;
-import com.itextpdf.rups.view.itext.treenodes.PdfObjectTreeNode;
-import com.itextpdf.rups.view.itext.treenodes.PdfPageTreeNode;
-import com.itextpdf.rups.view.itext.treenodes.PdfTrailerTreeNode;
 import com.itextpdf.rups.view.models.JTableAutoModel;
 import com.itextpdf.rups.view.models.JTableAutoModelInterface;
-import com.itextpdf.text.pdf.PdfDictionary;
-import com.itextpdf.text.pdf.PdfName;
-import com.itextpdf.text.pdf.PdfPageLabels;
 
 import javax.swing.*;
 import javax.swing.event.ListSelectionEvent;
-import java.util.ArrayList;
-import java.util.Enumeration;
 import java.util.Observable;
 import java.util.Observer;
 
 /**
  * A JTable listing all the pages in a PDF file: the object number of each
  * page dictionary and the page numbers (with label information if present).
+ * The page tree is walked in the background; the rows only hold the object
+ * numbers of the pages, the labels are computed when a row is shown.
  */
-public class PagesTable extends JTable implements JTableAutoModelInterface, Observer {
+public class PagesTable extends JTable implements JTableAutoModelInterface, Observer, PageTreeWalker.PageListener {
 
-	/** A list with page nodes. */
-	protected ArrayList<PdfPageTreeNode> list = new ArrayList<PdfPageTreeNode>();
+	/** The object numbers of the pages. */
+	protected int[] refs = new int[0];
+	/** The number of pages that have been found. */
+	protected int count;
+	/** The page labels of the document. */
+	protected PageLabelIndex labels;
 	/** Nodes in the FormTree correspond with nodes in the main PdfTree. */
 	protected PdfReaderController controller;
 	/***/
 	protected PageSelectionListener listener;
+	/** The walker that is looking for the pages. */
+	protected PageTreeWalker walker;
 
 	/**
 	 * Constructs a PagesTable.
@@ -90,34 +91,60 @@ public class PagesTable extends JTable implements JTableAutoModelInterface, Obse
 	 */
     public void update(Observable observable, Object obj) {
 		if (obj == null) {
-			list = new ArrayList<PdfPageTreeNode>();
-			repaint();
+			stopPageWalk();
+			refs = new int[0];
+			count = 0;
+			labels = null;
+			setModel(new JTableAutoModel(this));
 			return;
 		}
 		if (obj instanceof ObjectLoader) {
+			stopPageWalk();
+			refs = new int[0];
+			count = 0;
 			ObjectLoader loader = (ObjectLoader)obj;
-			String[] pagelabels = PdfPageLabels.getPageLabels(loader.getReader());
-			int i = 0;
-			TreeNodeFactory factory = loader.getNodes();
-			PdfTrailerTreeNode trailer = controller.getPdfTree().getRoot();
-			PdfObjectTreeNode catalog = factory.getChildNode(trailer, PdfName.ROOT);
-			Enumeration<PdfPageTreeNode> p = new PageEnumerator((PdfDictionary)catalog.getPdfObject(), factory);
-			PdfPageTreeNode  child;
-			StringBuffer buf;
-			while (p.hasMoreElements()) {
-				child = p.nextElement();
-				buf = new StringBuffer("Page ");
-				buf.append(++i);
-				if (pagelabels != null) {
-					buf.append(" ( ");
-					buf.append(pagelabels[i - 1]);
-					buf.append(" )");
-				}
-				child.setUserObject(buf.toString());
-				list.add((PdfPageTreeNode)child);
-			}
+			labels = new PageLabelIndex(loader.getReader());
+			setModel(new JTableAutoModel(this));
+			if (loader.getPdfFile() != null)
+				walker = new PageTreeWalker(loader.getPdfFile(), this);
+		}
+	}
+
+	/**
+	 * Adds the rows of the pages that were found.
+	 * @see com.itextpdf.rups.model.PageTreeWalker.PageListener#pagesFound(com.itextpdf.rups.model.PageTreeWalker, int[], int, boolean)
+	 */
+	public void pagesFound(PageTreeWalker w, int[] found, int n, boolean finished) {
+		if (w != walker)
+			return;
+		int first = count;
+		refs = found;
+		count = n;
+		if (count > first)
+			((JTableAutoModel)getModel()).fireTableRowsInserted(first, count - 1);
+		if (finished)
+			walker = null;
+	}
+
+	/**
+	 * Stops looking for the pages of the previous document.
+	 */
+	protected void stopPageWalk() {
+		if (walker != null) {
+			walker.interrupt();
+			walker = null;
 		}
-		setModel(new JTableAutoModel(this));
+	}
+
+	/**
+	 * Gets the object number of a page.
+	 * @param pageNumber	a page number (the first page is 1)
+	 * @return	the object number, or -1 if the page hasn't been found (yet)
+	 */
+	public int getPageReference(int pageNumber) {
+		if (pageNumber < 1 || pageNumber > count)
+			return -1;
+		return refs[pageNumber - 1];
 	}
 
 	/**
@@ -133,7 +160,7 @@ public class PagesTable extends JTable implements JTableAutoModelInterface, Obse
 	 */
 	@Override
     public int getRowCount() {
-		return list.size();
+		return count;
 	}
 
     /**
@@ -141,12 +168,20 @@ public class PagesTable extends JTable implements JTableAutoModelInterface, Obse
      */
     @Override
     public Object getValueAt(int rowIndex, int columnIndex) {
-    	if (getRowCount() == 0) return null;
+    	if (rowIndex >= count) return null;
 		switch (columnIndex) {
 		case 0:
-			return "Object " + list.get(rowIndex).getNumber();
+			return "Object " + refs[rowIndex];
 		case 1:
-			return list.get(rowIndex);
+			StringBuffer buf = new StringBuffer("Page ");
+			buf.append(rowIndex + 1);
+			String label = labels == null ? null : labels.getLabel(rowIndex + 1);
+			if (label != null) {
+				buf.append(" ( ");
+				buf.append(label);
+				buf.append(" )");
+			}
+			return buf.toString();
 		}
 		return null;
 	}
@@ -177,7 +212,7 @@ public class PagesTable extends JTable implements JTableAutoModelInterface, Obse
 		if (getRowCount() > 0) {
             int selectedRow = getSelectedRow();
             if ( selectedRow >= 0 ) {
-                controller.selectNode(list.get(selectedRow));
+                controller.selectNode(refs[selectedRow]);
                 if (listener != null)
                     listener.gotoPage(getSelectedRow() + 1);
             }
@@ -43,6 +43,7 @@
  */
 package com.itextpdf.rups.view.itext;
 
+import com.itextpdf.rups.model.ObjectLoader;
 import com.itextpdf.rups.view.icons.IconFetcher;
 import com.itextpdf.rups.view.models.DictionaryTableModel;
 import com.itextpdf.rups.view.models.DictionaryTableModelButton;
@@ -76,6 +77,8 @@ public class PdfObjectPanel extends JPanel implements Observer {
 	JTextArea text = new JTextArea();
 
     private JTableButtonMouseListener mouseListener;
+	/** The listener that is told when a dictionary is changed in the table (can be null). */
+	protected DictionaryTableModel.DictionaryListener dictionaryListener;
 	
 	/** Creates a PDF object panel. */
 	public PdfObjectPanel() {
@@ -96,6 +99,14 @@ public class PdfObjectPanel extends JPanel implements Observer {
         table.addMouseListener(mouseListener);
 	}
 	
+	/**
+	 * Sets the listener that is told when a dictionary is changed in the table.
+	 * @param listener	a listener (can be null)
+	 */
+	public void setDictionaryListener(DictionaryTableModel.DictionaryListener listener) {
+		dictionaryListener = listener;
+	}
+
 	/**
 	 * Clear the object panel.
 	 */
@@ -108,6 +119,8 @@ public class PdfObjectPanel extends JPanel implements Observer {
 	 * @see java.util.Observer#update(java.util.Observable, java.lang.Object)
 	 */
 	public void update(Observable observable, Object obj) {
+		if (obj instanceof ObjectLoader.Published)
+			return;
 		clear();
 	}
 	
@@ -126,7 +139,9 @@ public class PdfObjectPanel extends JPanel implements Observer {
 		switch(object.type()) {
 		case PdfObject.DICTIONARY:
 		case PdfObject.STREAM:
-			table.setModel(new DictionaryTableModel((PdfDictionary)object));
+			DictionaryTableModel model = new DictionaryTableModel((PdfDictionary)object);
+			model.setDictionaryListener(dictionaryListener);
+			table.setModel(model);
             table.getColumn("").setCellRenderer(new DictionaryTableModelButton(IconFetcher.getIcon("cross.png"), IconFetcher.getIcon("add.png")));
 			layout.show(this, TABLE);
 			this.repaint();
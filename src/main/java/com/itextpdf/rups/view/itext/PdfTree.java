@@ -45,12 +45,13 @@ package com.itextpdf.rups.view.itext;
 
 import com.itextpdf.rups.io.listeners.PdfTreeExpansionListener;
 import com.itextpdf.rups.io.listeners.PdfTreeNavigationListener;
+import com.itextpdf.rups.model.ObjectLoader;
 import com.itextpdf.rups.view.icons.IconTreeCellRenderer;
 import com.itextpdf.rups.view.itext.treenodes.PdfObjectTreeNode;
 import com.itextpdf.rups.view.itext.treenodes.PdfTrailerTreeNode;
+import com.itextpdf.rups.view.models.PdfTreeModel;
 
 import javax.swing.*;
-import javax.swing.tree.DefaultTreeModel;
 import javax.swing.tree.TreePath;
 import java.util.Observable;
 import java.util.Observer;
@@ -72,7 +73,7 @@ public class PdfTree extends JTree implements Observer {
         PdfTreeNavigationListener listener = new PdfTreeNavigationListener();
         addKeyListener(listener);
         addMouseListener(listener);
-		setCellRenderer(new IconTreeCellRenderer());
+		IconTreeCellRenderer.install(this);
         addTreeExpansionListener(new PdfTreeExpansionListener());
 		update(null, null);
 	}
@@ -95,8 +96,11 @@ public class PdfTree extends JTree implements Observer {
 	public void update(Observable observable, Object obj) {
 		if (obj == null) {
 			root = new PdfTrailerTreeNode();
+			setModel(new PdfTreeModel(root, null));
+		}
+		else if (obj instanceof ObjectLoader) {
+			setModel(new PdfTreeModel(root, ((ObjectLoader)obj).getNodes()));
 		}
-		setModel(new DefaultTreeModel(root));
 		repaint();
 	}
 
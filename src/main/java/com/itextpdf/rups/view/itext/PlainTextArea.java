@@ -0,0 +1,234 @@
+/*
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 2007-2015 iText Group NV
+ * Authors: Bruno Lowagie et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.rups.view.itext;
+
+import java.awt.BorderLayout;
+import java.awt.event.AdjustmentEvent;
+import java.awt.event.AdjustmentListener;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.event.MouseWheelListener;
+import java.io.IOException;
+
+import javax.swing.JPanel;
+import javax.swing.JScrollBar;
+import javax.swing.JTextArea;
+
+import com.itextpdf.text.io.RandomAccessSource;
+
+/**
+ * Shows the raw bytes of a PDF file as plain text.
+ * Only the lines that are visible are read from the source and decoded,
+ * so the memory use doesn't depend on the size of the file.
+ */
+public class PlainTextArea extends JPanel {
+
+	/** Lines longer than this number of bytes are shown as multiple lines. */
+	protected static final int MAX_LINE = 256;
+	/** The maximum number of scroll bar positions. */
+	protected static final long MAX_POSITIONS = 1 << 20;
+
+	/** The source of the bytes of the PDF file. */
+	protected RandomAccessSource source;
+	/** The text area showing the visible lines. */
+	protected JTextArea text;
+	/** The scroll bar used to move through the file. */
+	protected JScrollBar scrollbar;
+	/** The number of bytes corresponding with one scroll bar position. */
+	protected long unit;
+	/** The offset of the first visible line. */
+	protected long offset = 0;
+	/** Indicates that the scroll bar is being changed by this class. */
+	private boolean adjusting = false;
+
+	/**
+	 * Creates a plain text view of the bytes in a source.
+	 * @param source	the source of the bytes of a PDF file
+	 */
+	public PlainTextArea(RandomAccessSource source) {
+		super(new BorderLayout());
+		this.source = source;
+		unit = Math.max(1, source.length() / MAX_POSITIONS);
+		text = new JTextArea();
+		text.setEditable(false);
+		add(text, BorderLayout.CENTER);
+		scrollbar = new JScrollBar(JScrollBar.VERTICAL, 0, 1, 0, (int)(source.length() / unit) + 1);
+		add(scrollbar, BorderLayout.EAST);
+
+		scrollbar.addAdjustmentListener(new AdjustmentListener() {
+			public void adjustmentValueChanged(AdjustmentEvent e) {
+				if (!adjusting)
+					scrollTo(nextLine(e.getValue() * unit - 1));
+			}
+		});
+		text.addMouseWheelListener(new MouseWheelListener() {
+			public void mouseWheelMoved(MouseWheelEvent e) {
+				scrollLines(e.getUnitsToScroll());
+			}
+		});
+		addComponentListener(new ComponentAdapter() {
+			@Override
+			public void componentResized(ComponentEvent e) {
+				render();
+			}
+		});
+	}
+
+	/**
+	 * Moves the view a number of lines up (negative) or down (positive).
+	 * @param lines	the number of lines
+	 */
+	public void scrollLines(int lines) {
+		long pos = offset;
+		for (; lines > 0; lines--)
+			pos = nextLine(pos);
+		for (; lines < 0; lines++)
+			pos = previousLine(pos);
+		scrollTo(pos);
+	}
+
+	/**
+	 * Shows the lines starting at a specific offset.
+	 * @param pos	the offset of the first line to show
+	 */
+	protected void scrollTo(long pos) {
+		offset = Math.max(0, Math.min(pos, source.length()));
+		adjusting = true;
+		scrollbar.setValue((int)(offset / unit));
+		adjusting = false;
+		render();
+	}
+
+	/**
+	 * Decodes the lines that fit in the text area.
+	 */
+	protected void render() {
+		int rows = Math.max(1, text.getHeight() / Math.max(1, text.getFontMetrics(text.getFont()).getHeight()));
+		StringBuilder buf = new StringBuilder();
+		long pos = offset;
+		for (int i = 0; i < rows && pos < source.length(); i++) {
+			long next = nextLine(pos);
+			byte[] line = read(pos, (int)(next - pos));
+			int len = line.length;
+			while (len > 0 && (line[len - 1] == '\n' || line[len - 1] == '\r'))
+				len--;
+			try {
+				buf.append(new String(line, 0, len, "Cp1252")).append('\n');
+			}
+			catch (IOException e) {
+				break;
+			}
+			pos = next;
+		}
+		text.setText(buf.toString());
+		text.setCaretPosition(0);
+	}
+
+	/**
+	 * Gets the offset of the line following the line at a specific offset.
+	 * @param pos	an offset in the file
+	 * @return	the offset of the next line
+	 */
+	protected long nextLine(long pos) {
+		if (pos < 0)
+			return 0;
+		byte[] bytes = read(pos, MAX_LINE + 1);
+		for (int i = 0; i < bytes.length && i < MAX_LINE; i++) {
+			if (bytes[i] == '\n')
+				return pos + i + 1;
+			if (bytes[i] == '\r')
+				return pos + i + (i + 1 < bytes.length && bytes[i + 1] == '\n' ? 2 : 1);
+		}
+		return Math.min(pos + MAX_LINE, source.length());
+	}
+
+	/**
+	 * Gets the offset of the line preceding the line at a specific offset.
+	 * @param pos	the offset of a line in the file
+	 * @return	the offset of the previous line
+	 */
+	protected long previousLine(long pos) {
+		long start = Math.max(0, pos - MAX_LINE - 2);
+		byte[] bytes = read(start, (int)(pos - start));
+		int i = bytes.length;
+		// skip the end of the previous line
+		if (i > 0 && bytes[i - 1] == '\n')
+			i--;
+		if (i > 0 && bytes[i - 1] == '\r')
+			i--;
+		int end = i;
+		while (i > 0 && bytes[i - 1] != '\n' && bytes[i - 1] != '\r')
+			i--;
+		if (i == 0 && start > 0 || end - i > MAX_LINE)
+			return Math.max(0, pos - MAX_LINE);
+		return start + i;
+	}
+
+	/**
+	 * Reads bytes from the source.
+	 * @param pos	the offset of the first byte
+	 * @param len	the maximum number of bytes
+	 * @return	the bytes that could be read
+	 */
+	protected byte[] read(long pos, int len) {
+		len = (int)Math.max(0, Math.min(len, source.length() - pos));
+		byte[] bytes = new byte[len];
+		try {
+			int n = source.get(pos, bytes, 0, len);
+			if (n < len) {
+				byte[] tmp = new byte[Math.max(n, 0)];
+				System.arraycopy(bytes, 0, tmp, 0, tmp.length);
+				return tmp;
+			}
+		}
+		catch (IOException e) {
+			return new byte[0];
+		}
+		return bytes;
+	}
+
+	/** A Serial Version UID. */
+	private static final long serialVersionUID = 2766254658424925571L;
+}
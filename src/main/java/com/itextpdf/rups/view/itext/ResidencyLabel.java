@@ -0,0 +1,118 @@
+/*
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 2007-2015 iText Group NV
+ * Authors: Bruno Lowagie et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.rups.view.itext;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.Observable;
+import java.util.Observer;
+
+import javax.swing.JLabel;
+import javax.swing.Timer;
+
+import com.itextpdf.rups.model.IndirectObjectFactory;
+import com.itextpdf.rups.model.ObjectLoader;
+import com.itextpdf.rups.model.TreeNodeFactory;
+
+/**
+ * A label that shows how many loaded objects and tree nodes
+ * of indirect objects are kept in memory, and the maximum
+ * number of each before they are released.
+ */
+public class ResidencyLabel extends JLabel implements Observer {
+
+	/** The time between two updates of the label (in ms). */
+	public static final int REFRESH_DELAY = 1000;
+
+	/** The factory with the loaded objects. */
+	protected IndirectObjectFactory objects;
+	/** The factory with the tree nodes. */
+	protected TreeNodeFactory nodes;
+	/** The timer that updates the label. */
+	protected Timer timer;
+
+	/** Creates a label that shows the residency of the objects of the current file. */
+	public ResidencyLabel() {
+		super(" ");
+		timer = new Timer(REFRESH_DELAY, new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				refresh();
+			}
+		});
+	}
+
+	/**
+	 * @see java.util.Observer#update(java.util.Observable, java.lang.Object)
+	 */
+	public void update(Observable observable, Object obj) {
+		if (obj == null) {
+			timer.stop();
+			objects = null;
+			nodes = null;
+			setText(" ");
+			return;
+		}
+		if (obj instanceof ObjectLoader) {
+			ObjectLoader loader = (ObjectLoader)obj;
+			objects = loader.getObjects();
+			nodes = loader.getNodes();
+			refresh();
+			timer.start();
+		}
+	}
+
+	/**
+	 * Shows the current number of loaded objects and tree nodes.
+	 */
+	protected void refresh() {
+		if (objects == null || nodes == null)
+			return;
+		setText(String.format("Objects in memory: %d of %d; object nodes: %d of %d",
+				objects.getLoadedCount(), IndirectObjectFactory.getMaxLoaded(),
+				nodes.getNodeCount(), nodes.getMaxNodes()));
+	}
+
+	/** A serial version UID. */
+	private static final long serialVersionUID = -4426158271096408530L;
+}
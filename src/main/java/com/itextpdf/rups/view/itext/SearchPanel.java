@@ -0,0 +1,259 @@
+/*
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 2007-2015 iText Group NV
+ * Authors: Bruno Lowagie et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.rups.view.itext;
+
+import java.awt.BorderLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.List;
+import java.util.Observable;
+import java.util.Observer;
+
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTextField;
+import javax.swing.JTree;
+import javax.swing.Timer;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.event.TreeSelectionEvent;
+import javax.swing.event.TreeSelectionListener;
+import javax.swing.tree.DefaultTreeModel;
+import javax.swing.tree.TreePath;
+
+import com.itextpdf.rups.controller.PdfReaderController;
+import com.itextpdf.rups.model.ObjectLoader;
+import com.itextpdf.rups.model.ObjectSearch;
+import com.itextpdf.rups.model.ObjectTypeIndex;
+import com.itextpdf.rups.view.icons.IconTreeCellRenderer;
+import com.itextpdf.rups.view.itext.treenodes.SearchTreeNode;
+
+/**
+ * A panel with a filter box and a tree that only contains the objects,
+ * keys and values that match the text in the box. The search runs in
+ * the background (see ObjectSearch); it starts when the text hasn't
+ * changed for a moment and it is cancelled when the text changes again.
+ */
+public class SearchPanel extends JPanel implements Observer, ObjectSearch.HitListener, TreeSelectionListener {
+
+	/** The time the text has to stay the same before the search starts (in ms). */
+	public static final int DEBOUNCE_DELAY = 300;
+
+	/** The controller that selects the objects that are found in the PdfTree. */
+	protected PdfReaderController controller;
+	/** The filter box. */
+	protected JTextField field = new JTextField();
+	/** The tree with the hits. */
+	protected JTree results = new JTree();
+	/** The number of hits and the state of the search. */
+	protected JLabel status = new JLabel(" ");
+	/** The timer that starts the search once the text has stopped changing. */
+	protected Timer debounce;
+	/** The loader of the current file. */
+	protected ObjectLoader loader;
+	/** The search that is running (or has finished). */
+	protected ObjectSearch search;
+	/** The root of the tree with the hits. */
+	protected SearchTreeNode root;
+	/** The number of objects with hits. */
+	protected int objectsFound;
+
+	/**
+	 * Creates a search panel.
+	 * @param controller	the controller that selects the objects that are found
+	 */
+	public SearchPanel(PdfReaderController controller) {
+		super(new BorderLayout());
+		this.controller = controller;
+		IconTreeCellRenderer.install(results);
+		clear();
+		results.addTreeSelectionListener(this);
+		add(field, BorderLayout.NORTH);
+		add(new JScrollPane(results), BorderLayout.CENTER);
+		add(status, BorderLayout.SOUTH);
+		debounce = new Timer(DEBOUNCE_DELAY, new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				startSearch();
+			}
+		});
+		debounce.setRepeats(false);
+		field.getDocument().addDocumentListener(new DocumentListener() {
+			public void insertUpdate(DocumentEvent e) {
+				debounce.restart();
+			}
+			public void removeUpdate(DocumentEvent e) {
+				debounce.restart();
+			}
+			public void changedUpdate(DocumentEvent e) {
+				debounce.restart();
+			}
+		});
+	}
+
+	/**
+	 * @see java.util.Observer#update(java.util.Observable, java.lang.Object)
+	 */
+	public void update(Observable observable, Object obj) {
+		if (obj == null) {
+			loader = null;
+			cancelSearch();
+			clear();
+			status.setText(" ");
+			return;
+		}
+		if (obj instanceof ObjectLoader) {
+			loader = (ObjectLoader)obj;
+			startSearch();
+		}
+		if (obj instanceof ObjectLoader.Published
+				&& ((ObjectLoader.Published)obj).isFinished()
+				&& ((ObjectLoader.Published)obj).getLoader() == loader) {
+			// the objects that weren't scanned yet are searched too
+			startSearch();
+		}
+	}
+
+	/**
+	 * Cancels the running search (if any) and starts a new one
+	 * for the text in the filter box.
+	 */
+	protected void startSearch() {
+		debounce.stop();
+		cancelSearch();
+		clear();
+		String query = field.getText().trim();
+		if (query.length() == 0 || loader == null || loader.getObjects() == null) {
+			status.setText(" ");
+			return;
+		}
+		if (loader.getPdfFile() == null) {
+			status.setText("This file can't be searched");
+			return;
+		}
+		status.setText("Searching...");
+		search = new ObjectSearch(loader.getPdfFile(), loader.getObjects(), query, this);
+	}
+
+	/**
+	 * Cancels the running search (if any).
+	 */
+	protected void cancelSearch() {
+		if (search != null) {
+			search.interrupt();
+			search = null;
+		}
+	}
+
+	/**
+	 * Removes all the hits from the tree.
+	 */
+	protected void clear() {
+		root = new SearchTreeNode();
+		objectsFound = 0;
+		results.setModel(new DefaultTreeModel(root));
+	}
+
+	/**
+	 * Adds the hits to the tree, grouped per object.
+	 * @see com.itextpdf.rups.model.ObjectSearch.HitListener#hitsFound(com.itextpdf.rups.model.ObjectSearch, java.util.List)
+	 */
+	public void hitsFound(ObjectSearch s, List<ObjectSearch.Hit> hits) {
+		if (s != search)
+			return;
+		DefaultTreeModel model = (DefaultTreeModel)results.getModel();
+		ObjectTypeIndex types = loader.getObjects().getTypeIndex();
+		for (ObjectSearch.Hit hit : hits) {
+			SearchTreeNode object = root.getChildCount() == 0 ? null : (SearchTreeNode)root.getLastChild();
+			if (object == null || object.getNumber() != hit.getRef()) {
+				String type = types.getType(hit.getRef());
+				object = new SearchTreeNode("ref.png", hit.getRef(),
+						hit.getRef() + " 0 R" + (type == null ? "" : " " + type));
+				root.add(object);
+				model.nodesWereInserted(root, new int[] { root.getChildCount() - 1 });
+				objectsFound++;
+			}
+			String caption = hit.getPath().length() == 0 ? hit.getValue() : hit.getPath() + " = " + hit.getValue();
+			object.add(new SearchTreeNode("bullet_go.png", hit.getRef(), hit.getSteps(), caption));
+			model.nodesWereInserted(object, new int[] { object.getChildCount() - 1 });
+		}
+		results.expandPath(new TreePath(root));
+		status.setText(s.getHits() + " hits in " + objectsFound + " objects; searching...");
+	}
+
+	/**
+	 * @see com.itextpdf.rups.model.ObjectSearch.HitListener#searchFinished(com.itextpdf.rups.model.ObjectSearch)
+	 */
+	public void searchFinished(ObjectSearch s) {
+		if (s != search)
+			return;
+		if (s.getError() != null)
+			status.setText(s.getError());
+		else if (s.isTruncated())
+			status.setText("The first " + s.getHits() + " hits in " + objectsFound + " objects");
+		else
+			status.setText(s.getHits() + " hits in " + objectsFound + " objects");
+	}
+
+	/**
+	 * Selects the object of a hit in the PdfTree, or the key or value
+	 * inside the object that matched.
+	 * @see javax.swing.event.TreeSelectionListener#valueChanged(javax.swing.event.TreeSelectionEvent)
+	 */
+	public void valueChanged(TreeSelectionEvent e) {
+		if (controller == null || loader == null)
+			return;
+		Object selected = results.getLastSelectedPathComponent();
+		if (selected instanceof SearchTreeNode && ((SearchTreeNode)selected).getNumber() > -1) {
+			SearchTreeNode hit = (SearchTreeNode)selected;
+			if (hit.getSteps() == null)
+				controller.selectNode(hit.getNumber());
+			else
+				controller.selectNode(hit.getNumber(), hit.getSteps());
+		}
+	}
+
+	/** A serial version UID. */
+	private static final long serialVersionUID = -1957309271863204185L;
+}
@@ -43,107 +43,213 @@
  */
 package com.itextpdf.rups.view.itext;
 
-import java.util.Enumeration;
+import java.awt.event.HierarchyEvent;
+import java.awt.event.HierarchyListener;
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Observable;
 import java.util.Observer;
 
 import javax.swing.JTree;
+import javax.swing.ToolTipManager;
 import javax.swing.event.TreeSelectionEvent;
 import javax.swing.event.TreeSelectionListener;
 import javax.swing.tree.DefaultTreeModel;
+import javax.swing.tree.TreeModel;
+import javax.swing.tree.TreePath;
 
 import com.itextpdf.rups.controller.PdfReaderController;
 import com.itextpdf.rups.model.ObjectLoader;
-import com.itextpdf.rups.model.TreeNodeFactory;
+import com.itextpdf.rups.model.PdfFile;
+import com.itextpdf.rups.model.StructureStatistics;
 import com.itextpdf.rups.view.icons.IconTreeCellRenderer;
-import com.itextpdf.rups.view.itext.treenodes.PdfObjectTreeNode;
-import com.itextpdf.rups.view.itext.treenodes.PdfTrailerTreeNode;
 import com.itextpdf.rups.view.itext.treenodes.StructureTreeNode;
+import com.itextpdf.rups.view.models.StructureTreeModel;
 import com.itextpdf.text.pdf.PdfDictionary;
+import com.itextpdf.text.pdf.PdfIndirectReference;
 import com.itextpdf.text.pdf.PdfName;
+import com.itextpdf.text.pdf.PdfObject;
+import com.itextpdf.text.pdf.PdfReader;
 
 /**
  * A JTree visualizing information about the structure tree of
- * the PDF file (if any).
+ * the PDF file (if any). The structure tree is only read when the tree
+ * is shown, and the kids of an element only when it is expanded.
+ * The elements are counted in the background; the counts are shown
+ * in the root node.
  */
-public class StructureTree extends JTree implements TreeSelectionListener, Observer {
+public class StructureTree extends JTree implements TreeSelectionListener, Observer,
+		StructureStatistics.StatisticsListener {
+	
+	/** The maximum number of structure types in the tooltip of the root node. */
+	public static final int MAX_TYPES = 25;
+	/** The maximum depth of the structure tree when an element is looked up (to stop at loops). */
+	public static final int MAX_DEPTH = 256;
 	
 	/** Nodes in the FormTree correspond with nodes in the main PdfTree. */
 	protected PdfReaderController controller;
+	/** The loader of a document whose structure tree hasn't been read yet. */
+	protected ObjectLoader pending;
+	/** The reader of the document whose structure tree is shown. */
+	protected PdfReader reader;
+	/** The task that counts the structure elements. */
+	protected StructureStatistics statistics;
+	/** The tooltip of the root node, once the elements have been counted. */
+	protected String summary;
 
 	public StructureTree(PdfReaderController controller) {
 		super();
 		this.controller = controller;
-		setCellRenderer(new IconTreeCellRenderer());
+		IconTreeCellRenderer.install(this);
 		setModel(new DefaultTreeModel(new StructureTreeNode()));
 		addTreeSelectionListener(this);
+		ToolTipManager.sharedInstance().registerComponent(this);
+		addHierarchyListener(new HierarchyListener() {
+			public void hierarchyChanged(HierarchyEvent e) {
+				if ((e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) != 0 && isShowing())
+					loadStructure();
+			}
+		});
 	}
 	
 	public void update(Observable observable, Object obj) {
 		if (obj == null) {
-			setModel(new DefaultTreeModel(new StructureTreeNode()));
+			reset();
 			repaint();
 			return;
 		}
 		if (obj instanceof ObjectLoader) {
-			ObjectLoader loader = (ObjectLoader)obj;
-			TreeNodeFactory factory = loader.getNodes();
-			PdfTrailerTreeNode trailer = controller.getPdfTree().getRoot();
-			PdfObjectTreeNode catalog = factory.getChildNode(trailer, PdfName.ROOT);
-			PdfObjectTreeNode structuretree = factory.getChildNode(catalog, PdfName.STRUCTTREEROOT);
-			if (structuretree == null) {
-				return;
-			}
-			StructureTreeNode root = new StructureTreeNode();
-			PdfObjectTreeNode kids = factory.getChildNode(structuretree, PdfName.K);
-			loadKids(factory, root, kids);
-			setModel(new DefaultTreeModel(root));
+			reset();
+			pending = (ObjectLoader)obj;
+			if (isShowing())
+				loadStructure();
 		}
 	}
 
-	@SuppressWarnings("unchecked")
-	private void loadKids(TreeNodeFactory factory, StructureTreeNode structure_node, PdfObjectTreeNode object_node) {
-		if (object_node == null) {
-			return;
+	/**
+	 * Forgets the structure tree of the previous document.
+	 */
+	protected void reset() {
+		pending = null;
+		reader = null;
+		summary = null;
+		if (statistics != null) {
+			statistics.interrupt();
+			statistics = null;
 		}
-		factory.expandNode(object_node);
-		if (object_node.isDictionary()) {
-			PdfDictionary dict = (PdfDictionary) object_node.getPdfObject();
-			if (dict.checkType(PdfName.MCR)) {
-				structure_node.add(new StructureTreeNode(factory.getChildNode(object_node, PdfName.MCID), "bullet_go.png"));
-				return;
-			}
-			if (dict.checkType(PdfName.OBJR)) {
-				structure_node.add(new StructureTreeNode(factory.getChildNode(object_node, PdfName.OBJ), "bullet_go.png"));
-				return;
-			}
-			StructureTreeNode leaf = new StructureTreeNode(object_node, "chart_organisation.png");
-			structure_node.add(leaf);
-			PdfObjectTreeNode kids = factory.getChildNode(object_node, PdfName.K);
-			loadKids(factory, leaf, kids);
+		setModel(new DefaultTreeModel(new StructureTreeNode()));
+	}
+
+	/**
+	 * Reads the structure tree root of the document, if that hasn't happened yet,
+	 * and starts counting the elements.
+	 */
+	protected void loadStructure() {
+		if (pending == null)
+			return;
+		PdfReader reader = pending.getReader();
+		PdfFile file = pending.getPdfFile();
+		pending = null;
+		PdfDictionary root = reader.getCatalog().getAsDict(PdfName.STRUCTTREEROOT);
+		if (root == null)
+			return;
+		this.reader = reader;
+		setModel(new StructureTreeModel(new StructureTreeNode(root)));
+		if (file != null)
+			statistics = new StructureStatistics(file, this);
+	}
+
+	/**
+	 * Selects a structure element. The path to the element is found by
+	 * following the /P entries up to the structure tree root; only the
+	 * elements on that path are expanded.
+	 * @param ref	the object number of a structure element
+	 * @return	false if the element isn't in the tree
+	 */
+	public boolean selectElement(int ref) {
+		loadStructure();
+		if (reader == null)
+			return false;
+		List<Integer> chain = new ArrayList<Integer>();
+		int number = ref;
+		while (true) {
+			if (chain.size() == MAX_DEPTH)
+				return false;
+			chain.add(0, Integer.valueOf(number));
+			PdfObject object = reader.getPdfObjectRelease(number);
+			if (!(object instanceof PdfDictionary))
+				return false;
+			PdfObject parent = ((PdfDictionary)object).get(PdfName.P);
+			if (!(parent instanceof PdfIndirectReference))
+				return false;
+			number = ((PdfIndirectReference)parent).getNumber();
+			object = reader.getPdfObjectRelease(number);
+			if (object instanceof PdfDictionary && ((PdfDictionary)object).checkType(PdfName.STRUCTTREEROOT))
+				break;
 		}
-		else if (object_node.isArray()) {
-			Enumeration<PdfObjectTreeNode> children = object_node.children();
-			while (children.hasMoreElements()) {
-				loadKids(factory, structure_node, children.nextElement());
+		TreeModel model = getModel();
+		Object node = model.getRoot();
+		TreePath path = new TreePath(node);
+		for (Integer element : chain) {
+			Object found = null;
+			int n = model.getChildCount(node);
+			for (int i = 0; i < n && found == null; i++) {
+				StructureTreeNode child = (StructureTreeNode)model.getChild(node, i);
+				if (child.getNumber() == element.intValue())
+					found = child;
 			}
+			if (found == null)
+				return false;
+			node = found;
+			path = path.pathByAddingChild(node);
 		}
-		else if (object_node.isIndirectReference()) {
-			loadKids(factory, structure_node, (PdfObjectTreeNode)object_node.getFirstChild());
-		}
-		else  {
-			StructureTreeNode leaf = new StructureTreeNode(object_node, "bullet_go.png");
-			structure_node.add(leaf);
+		setSelectionPath(path);
+		scrollPathToVisible(path);
+		return true;
+	}
+
+	/**
+	 * Shows the counts in the root node.
+	 * @see com.itextpdf.rups.model.StructureStatistics.StatisticsListener#statisticsFound(com.itextpdf.rups.model.StructureStatistics)
+	 */
+	public void statisticsFound(StructureStatistics found) {
+		if (found != statistics)
+			return;
+		statistics = null;
+		StructureTreeNode root = (StructureTreeNode)getModel().getRoot();
+		root.setUserObject(String.format("Structure Tree (%d elements, depth %d, %d marked contents, %d objects)",
+				found.getElements(), found.getDepth(), found.getContents(), found.getObjects()));
+		((DefaultTreeModel)getModel()).nodeChanged(root);
+		StringBuffer buf = new StringBuffer("<html>");
+		List<String> types = found.getTypes();
+		for (int i = 0; i < types.size() && i < MAX_TYPES; i++) {
+			buf.append(types.get(i)).append(": ").append(found.getCount(types.get(i))).append("<br>");
 		}
+		if (types.size() > MAX_TYPES)
+			buf.append("(").append(types.size() - MAX_TYPES).append(" more types)");
+		buf.append("</html>");
+		summary = buf.toString();
+	}
+
+	/**
+	 * Shows the number of elements per structure type on the root node.
+	 * @see javax.swing.JTree#getToolTipText(java.awt.event.MouseEvent)
+	 */
+	@Override
+	public String getToolTipText(MouseEvent evt) {
+		TreePath path = getPathForLocation(evt.getX(), evt.getY());
+		if (path == null || path.getPathCount() > 1)
+			return null;
+		return summary;
 	}
 	
 	public void valueChanged(TreeSelectionEvent e) {
 		if (controller == null)
 			return;
 		StructureTreeNode selectednode = (StructureTreeNode)this.getLastSelectedPathComponent();
-		PdfObjectTreeNode node = selectednode.getCorrespondingPdfObjectNode();
-		if (node != null)
-			controller.selectNode(node);
+		if (selectednode != null && selectednode.getNumber() > -1)
+			controller.selectNode(selectednode.getNumber());
 	}
 
 	/** A Serial version UID */
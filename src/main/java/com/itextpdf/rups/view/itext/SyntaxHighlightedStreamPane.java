@@ -43,6 +43,7 @@
  */
 package com.itextpdf.rups.view.itext;
 
+import com.itextpdf.rups.model.ObjectLoader;
 import com.itextpdf.rups.view.contextmenu.ContextMenuMouseListener;
 import com.itextpdf.rups.view.contextmenu.StreamPanelContextMenu;
 import com.itextpdf.text.exceptions.InvalidPdfException;
@@ -94,6 +95,8 @@ public class SyntaxHighlightedStreamPane extends JScrollPane implements Observer
 	 * @see java.util.Observer#update(java.util.Observable, java.lang.Object)
 	 */
 	public void update(Observable observable, Object obj) {
+		if (obj instanceof ObjectLoader.Published)
+			return;
 		text.setText(null);
 	}
 	/**
@@ -53,6 +53,7 @@ import javax.swing.table.TableColumn;
 import com.itextpdf.rups.controller.PdfReaderController;
 import com.itextpdf.rups.model.IndirectObjectFactory;
 import com.itextpdf.rups.model.ObjectLoader;
+import com.itextpdf.rups.model.ObjectTypeIndex;
 import com.itextpdf.rups.view.models.JTableAutoModel;
 import com.itextpdf.rups.view.models.JTableAutoModelInterface;
 import com.itextpdf.text.pdf.PdfNull;
@@ -65,6 +66,8 @@ public class XRefTable extends JTable implements JTableAutoModelInterface, Obser
 
 	/** The factory that can produce all the indirect objects. */
 	protected IndirectObjectFactory objects;
+	/** The number of rows that can be shown (the objects that have been scanned). */
+	protected int rows;
 	/** The renderer that will render an object when selected in the table. */
 	protected PdfReaderController controller;
 	
@@ -80,6 +83,7 @@ public class XRefTable extends JTable implements JTableAutoModelInterface, Obser
 	public void update(Observable observable, Object obj) {
 		if (obj == null) {
 			objects = null;
+			rows = 0;
 			repaint();
 			return;
 		}
@@ -87,10 +91,19 @@ public class XRefTable extends JTable implements JTableAutoModelInterface, Obser
 				&& obj instanceof ObjectLoader) {
 			ObjectLoader loader = (ObjectLoader)obj;
 			objects = loader.getObjects();
+			rows = loader.isProgressive() ? 0 : objects.size();
 			setModel(new JTableAutoModel(this));
 			TableColumn col= getColumnModel().getColumn(0);
 			col.setPreferredWidth(5);
 		}
+		if (obj instanceof ObjectLoader.Published) {
+			ObjectLoader.Published published = (ObjectLoader.Published)obj;
+			if (objects != published.getLoader().getObjects() || published.getRows() <= rows)
+				return;
+			int first = rows;
+			rows = published.getRows();
+			((JTableAutoModel)getModel()).fireTableRowsInserted(first, rows - 1);
+		}
 	}
 	
 	/**
@@ -105,7 +118,7 @@ public class XRefTable extends JTable implements JTableAutoModelInterface, Obser
 	 */
 	public int getRowCount() {
 		if (objects == null) return 0;
-		return objects.size();
+		return rows;
 	}
 
     /**
@@ -139,8 +152,20 @@ public class XRefTable extends JTable implements JTableAutoModelInterface, Obser
 	 */
 	protected String getObjectDescriptionByRow(int rowIndex) {
 		PdfObject object = objects.getObjectByIndex(rowIndex);
-		if (object instanceof PdfNull)
-			return "Indirect object";
+		if (object instanceof PdfNull) {
+			ObjectTypeIndex types = objects.getTypeIndex();
+			int ref = getObjectReferenceByRow(rowIndex);
+			if (!types.isRecorded(ref))
+				return "Indirect object";
+			StringBuffer buf = new StringBuffer(ObjectTypeIndex.getKindName(types.getKind(ref)));
+			if (types.getType(ref) != null)
+				buf.append(" of type: ").append(types.getType(ref));
+			if (types.getSubtype(ref) != null)
+				buf.append(" ").append(types.getSubtype(ref));
+			if (types.getFilter(ref) != null)
+				buf.append(" ").append(types.getFilter(ref));
+			return buf.toString();
+		}
 		return object.toString();
 	}
 	
@@ -173,6 +198,8 @@ public class XRefTable extends JTable implements JTableAutoModelInterface, Obser
 	 */
 	public void selectRowByReference(int ref) {
 		int row = objects.getIndexByRef(ref);
+		if (row < 0 || row >= rows)
+			return;
 		setRowSelectionInterval(row, row);
 		scrollRectToVisible(getCellRect(row, 1, true));
 		valueChanged(null);
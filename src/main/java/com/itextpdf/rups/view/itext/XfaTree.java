@@ -64,11 +64,11 @@ public class XfaTree extends JTree {
 	}
 	
 	public void clear() {
-		setCellRenderer(new IconTreeCellRenderer());
+		IconTreeCellRenderer.install(this);
 		setModel(new DefaultTreeModel(new IconTreeNode("xfa.png")));
 	}
 	public void load(XfaFile file) {
-		setCellRenderer(new IconTreeCellRenderer());
+		IconTreeCellRenderer.install(this);
 		setModel(new DefaultTreeModel(new XdpTreeNode(file.getXfaDocument())));
 	}
 
@@ -45,39 +45,103 @@ package com.itextpdf.rups.view.itext.treenodes;
 
 import com.itextpdf.rups.view.icons.IconTreeNode;
 import com.itextpdf.text.pdf.PdfDictionary;
+import com.itextpdf.text.pdf.PdfIndirectReference;
 import com.itextpdf.text.pdf.PdfName;
+import com.itextpdf.text.pdf.PdfObject;
 
 /**
  * A node in the OutlineTree.
+ * The child nodes are only created when they are asked for (see OutlineTreeModel).
  */
 public class OutlineTreeNode extends IconTreeNode {
 
-	/** The corresponding tree node in the PdfTree. */
-	protected PdfObjectTreeNode object_node;
-	
+	/** The object number of the outline item (-1 for the root). */
+	protected int number = -1;
+	/** The object number of the first child (-1 if there are no children). */
+	protected int first = -1;
+	/** Indicates if the child nodes have been created. */
+	protected boolean loaded = false;
+
 	/** Creates the root node for the OutlineTree. */
 	public OutlineTreeNode() {
 		super("outline.png", "Bookmarks");
+		loaded = true;
 	}
 
 	/**
-	 * Creates a node corresponding with a node in the PdfTree.
-	 * @param	node	a corresponding node
+	 * Creates the root node for the OutlineTree.
+	 * @param	outlines	the outline dictionary
 	 */
-	public OutlineTreeNode(PdfObjectTreeNode node) {
+	public OutlineTreeNode(PdfDictionary outlines) {
+		super("outline.png", "Bookmarks");
+		first = getNumber(outlines.get(PdfName.FIRST));
+	}
+
+	/**
+	 * Creates a node for an outline item.
+	 * @param	number	the object number of the outline item
+	 * @param	item	the outline item dictionary
+	 */
+	public OutlineTreeNode(int number, PdfDictionary item) {
 		super("outline.png");
-		this.object_node = node;
-		PdfDictionary dict = (PdfDictionary)node.getPdfObject();
-		this.setUserObject(dict.get(PdfName.TITLE));
+		this.number = number;
+		first = getNumber(item.get(PdfName.FIRST));
+		this.setUserObject(item.get(PdfName.TITLE));
+	}
+
+	/**
+	 * Gets the object number of a reference.
+	 * @param object	a PDF object
+	 * @return	the object number, or -1 if the object isn't a reference
+	 */
+	public static int getNumber(PdfObject object) {
+		if (object instanceof PdfIndirectReference)
+			return ((PdfIndirectReference)object).getNumber();
+		return -1;
+	}
+
+	/**
+	 * Getter for the object number of the outline item.
+	 * @return	an object number, or -1 for the root
+	 */
+	public int getNumber() {
+		return number;
 	}
 
-    /**
-     * Gets the node in the PdfTree that corresponds with this
-     * OutlineTreeNode.
-     * @return	a PdfObjectTreeNode in the PdfTree
-     */
-	public PdfObjectTreeNode getCorrespondingPdfObjectNode() {
-		return object_node;
+	/**
+	 * Getter for the object number of the first child.
+	 * @return	an object number, or -1 if there are no children
+	 */
+	public int getFirst() {
+		return first;
+	}
+
+	/**
+	 * Tells you if the child nodes have been created.
+	 * @return	true once the children are loaded
+	 */
+	public boolean isLoaded() {
+		return loaded;
+	}
+
+	/**
+	 * Set this to true once the child nodes have been created.
+	 * @param	loaded	true if the children are loaded
+	 */
+	public void setLoaded(boolean loaded) {
+		this.loaded = loaded;
+	}
+
+	/**
+	 * As long as the child nodes haven't been created,
+	 * an item with a /First entry isn't a leaf.
+	 * @see javax.swing.tree.DefaultMutableTreeNode#isLeaf()
+	 */
+	@Override
+	public boolean isLeaf() {
+		if (!loaded)
+			return first < 0;
+		return super.isLeaf();
 	}
 
 	/** A serial version uid */
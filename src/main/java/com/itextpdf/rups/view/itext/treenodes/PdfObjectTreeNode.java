@@ -45,6 +45,8 @@ package com.itextpdf.rups.view.itext.treenodes;
 
 import com.itextpdf.rups.view.icons.IconFetcher;
 import com.itextpdf.rups.view.icons.IconTreeNode;
+import com.itextpdf.text.pdf.PRIndirectReference;
+import com.itextpdf.text.pdf.PdfArray;
 import com.itextpdf.text.pdf.PdfDictionary;
 import com.itextpdf.text.pdf.PdfIndirectReference;
 import com.itextpdf.text.pdf.PdfName;
@@ -52,12 +54,28 @@ import com.itextpdf.text.pdf.PdfObject;
 import com.itextpdf.text.pdf.PdfReader;
 import com.itextpdf.text.pdf.PdfString;
 
+import javax.swing.Icon;
+import javax.swing.tree.MutableTreeNode;
+import javax.swing.tree.TreeNode;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Vector;
+import java.util.WeakHashMap;
+
 /**
  * Every node in our tree corresponds with a PDF object.
  * This class is the superclass of all tree nodes used.
  */
 public class PdfObjectTreeNode extends IconTreeNode {
 
+	/** The maximum length of a caption. */
+	public static final int MAX_CAPTION = 256;
+	/** The number of captions of referenced objects that are cached per reader. */
+	public static final int MAX_TARGET_CAPTIONS = 4096;
+	/** The captions of the objects indirect references refer to, per reader and object number. */
+	private static final Map<PdfReader, Map<Integer, String>> TARGET_CAPTIONS = new WeakHashMap<PdfReader, Map<Integer, String>>();
+
 	/** the PDF object corresponding with this node. */
 	protected PdfObject object;
     /** the key if the parent of this node is a dictionary. */
@@ -66,46 +84,18 @@ public class PdfObjectTreeNode extends IconTreeNode {
 	protected int number = -1;
 	/** indicates if the object is indirect and recursive. */
 	protected boolean recursive = false;
+	/** indicates if the child nodes have been created. */
+	protected boolean expanded = false;
+	/** the child nodes of a dictionary, by key (created when the first entry is added). */
+	protected Map<PdfName, PdfObjectTreeNode> entries;
 
 	/**
 	 * Creates a tree node for a PDF object.
 	 * @param object	the PDF object represented by this tree node.
 	 */
 	protected PdfObjectTreeNode(PdfObject object) {
-		super(null, getCaption(object));
+		super(null);
 		this.object = object;
-    	switch(object.type()) {
-    	case PdfObject.INDIRECT:
-            if (isRecursive())
-    			icon = IconFetcher.getIcon("ref_recursive.png");
-    		else
-    			icon = IconFetcher.getIcon("ref.png");
-    		return;
-    	case PdfObject.ARRAY:
-    		icon = IconFetcher.getIcon("array.png");
-    		return;
-    	case PdfObject.DICTIONARY:
-    		icon = IconFetcher.getIcon("dictionary.png");
-    		return;
-		case PdfObject.STREAM:
-			icon = IconFetcher.getIcon("stream.png");
-			return;
-		case PdfObject.BOOLEAN:
-			icon = IconFetcher.getIcon("boolean.png");
-			return;
-		case PdfObject.NAME:
-			icon = IconFetcher.getIcon("name.png");
-			return;
-		case PdfObject.NULL:
-			icon = IconFetcher.getIcon("null.png");
-			return;
-		case PdfObject.NUMBER:
-			icon = IconFetcher.getIcon("number.png");
-			return;
-		case PdfObject.STRING:
-			icon = IconFetcher.getIcon("string.png");
-			return;
-    	}
 	}
 
 	/**
@@ -114,7 +104,7 @@ public class PdfObjectTreeNode extends IconTreeNode {
 	 * @param object	the PDF object represented by this tree node.
 	 */
 	protected PdfObjectTreeNode(String icon, PdfObject object) {
-		super(icon, getCaption(object));
+		super(icon);
 		this.object = object;
         }
 
@@ -156,7 +146,6 @@ public class PdfObjectTreeNode extends IconTreeNode {
 	 */
 	public static PdfObjectTreeNode getInstance(PdfDictionary dict, PdfName key) {
 		PdfObjectTreeNode node = getInstance(dict.get(key));
-		node.setUserObject(getDictionaryEntryCaption(dict, key));
 		node.key = key;
 		return node;
 	}
@@ -245,8 +234,168 @@ public class PdfObjectTreeNode extends IconTreeNode {
 		return recursive;
 	}
 
+	/**
+	 * Adds a child node at the end of the children of this node.
+	 * Unlike add(), this doesn't look for the child among the ancestors
+	 * of this node: the caller checks that the child isn't an ancestor
+	 * (see isDescendantOf()), or knows that it is a new node.
+	 * @param child	the new child node
+	 */
+	@SuppressWarnings("unchecked")
+	public void addChild(PdfObjectTreeNode child) {
+		MutableTreeNode oldParent = (MutableTreeNode)child.getParent();
+		if (oldParent != null)
+			oldParent.remove(child);
+		child.setParent(this);
+		if (children == null)
+			children = new Vector();
+		children.addElement(child);
+		if (child.key != null) {
+			if (entries == null)
+				entries = new HashMap<PdfName, PdfObjectTreeNode>();
+			entries.put(child.key, child);
+		}
+	}
+
+	/**
+	 * Gets the child node of a dictionary entry, without looking at
+	 * the other children.
+	 * @param key	the key of the dictionary entry
+	 * @return	the child node, or null if there is no child with that key
+	 */
+	public PdfObjectTreeNode getEntry(PdfName key) {
+		if (entries == null)
+			return null;
+		PdfObjectTreeNode child = entries.get(key);
+		if (child == null || child.getParent() != this)
+			return null;
+		return child;
+	}
+
+	/**
+	 * Tells you if a node is this node or one of its ancestors.
+	 * A node without children can't be an ancestor, so new nodes
+	 * are recognized without walking up the tree.
+	 * @param node	a node that may be an ancestor
+	 * @return	true if the node is on the path from the root to this node
+	 */
+	public boolean isDescendantOf(PdfObjectTreeNode node) {
+		if (node.getChildCount() == 0)
+			return node == this;
+		for (TreeNode ancestor = this; ancestor != null; ancestor = ancestor.getParent()) {
+			if (ancestor == node)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * The icon depends on the type of the object, so it's looked up
+	 * when it's needed instead of being stored in every node.
+	 * @see com.itextpdf.rups.view.icons.IconTreeNode#getIcon()
+	 */
+	@Override
+	public Icon getIcon() {
+		if (icon != null || object == null)
+			return icon;
+		switch(object.type()) {
+		case PdfObject.INDIRECT:
+			if (isRecursive())
+				return IconFetcher.getIcon("ref_recursive.png");
+			return IconFetcher.getIcon("ref.png");
+		case PdfObject.ARRAY:
+			return IconFetcher.getIcon("array.png");
+		case PdfObject.DICTIONARY:
+			return IconFetcher.getIcon("dictionary.png");
+		case PdfObject.STREAM:
+			return IconFetcher.getIcon("stream.png");
+		case PdfObject.BOOLEAN:
+			return IconFetcher.getIcon("boolean.png");
+		case PdfObject.NAME:
+			return IconFetcher.getIcon("name.png");
+		case PdfObject.NULL:
+			return IconFetcher.getIcon("null.png");
+		case PdfObject.NUMBER:
+			return IconFetcher.getIcon("number.png");
+		case PdfObject.STRING:
+			return IconFetcher.getIcon("string.png");
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * Set this to true once the child nodes have been created.
+	 * @param	expanded	true if the child nodes have been created
+	 */
+	public void setExpanded(boolean expanded) {
+		this.expanded = expanded;
+	}
+
+	/**
+	 * Tells you if the child nodes have been created.
+	 * @return	true if the node has been expanded by the TreeNodeFactory
+	 */
+	public boolean isExpanded() {
+		return expanded;
+	}
+
+	/**
+	 * Removes the child nodes, so that they can be garbage collected;
+	 * the TreeNodeFactory creates them again when they are asked for.
+	 */
+	public void releaseChildren() {
+		removeAllChildren();
+		entries = null;
+		expanded = false;
+		recursive = false;
+	}
+
+	/**
+	 * As long as the child nodes haven't been created, a node
+	 * isn't a leaf if its object can have children, so that
+	 * the tree shows an expand handle.
+	 * @see javax.swing.tree.DefaultMutableTreeNode#isLeaf()
+	 */
+	@Override
+	public boolean isLeaf() {
+		if (getChildCount() > 0)
+			return false;
+		if (expanded || object == null)
+			return true;
+		switch (object.type()) {
+		case PdfObject.INDIRECT:
+			return false;
+		case PdfObject.ARRAY:
+			return ((PdfArray)object).isEmpty();
+		case PdfObject.DICTIONARY:
+		case PdfObject.STREAM:
+			return ((PdfDictionary)object).size() == 0;
+		default:
+			return true;
+		}
+	}
+
+	/**
+	 * The caption is only created when it's asked for
+	 * (typically by the cell renderer of the tree).
+	 * @see javax.swing.tree.DefaultMutableTreeNode#toString()
+	 */
+	@Override
+	public String toString() {
+		if (userObject == null) {
+			if (key != null)
+				userObject = getDictionaryEntryCaption(key, object);
+			else
+				userObject = getCaption(object);
+		}
+		return userObject.toString();
+	}
+
 	/**
 	 * Creates the caption for a PDF object.
+	 * The caption is at most MAX_CAPTION characters long; the caption of
+	 * the object an indirect reference refers to is cached per object number.
 	 * @param object	the object for which a caption has to be created.
 	 * @return	a caption for a PDF object
 	 */
@@ -255,18 +404,22 @@ public class PdfObjectTreeNode extends IconTreeNode {
 			return "null";
 		switch (object.type()) {
 		case PdfObject.INDIRECT:
-            {
-                String reffedCaption = getCaption( PdfReader.getPdfObject( object ) );
-                return object.toString() + " -> " + reffedCaption;
-            }
-        case PdfObject.ARRAY:
+			return object.toString() + " -> " + getTargetCaption(object);
+		case PdfObject.ARRAY:
 			return "Array";
 		case PdfObject.STREAM:
 			return "Stream";
 		case PdfObject.STRING:
-			return ((PdfString)object).toUnicodeString();
+			byte[] bytes = object.getBytes();
+			// decoding a huge string only to show its first characters would be a waste
+			if (bytes != null && bytes.length > 2 * MAX_CAPTION + 2) {
+				byte[] start = new byte[2 * MAX_CAPTION + 2];
+				System.arraycopy(bytes, 0, start, 0, start.length);
+				return truncate(new PdfString(start).toUnicodeString());
+			}
+			return truncate(((PdfString)object).toUnicodeString());
 		}
-		return object.toString();
+		return truncate(object.toString());
 	}
 
 	/**
@@ -276,15 +429,92 @@ public class PdfObjectTreeNode extends IconTreeNode {
 	 * @return	a caption for the object corresponding with the key in the dictionary.
 	 */
 	public static String getDictionaryEntryCaption(PdfDictionary dict, PdfName key) {
+		return getDictionaryEntryCaption(key, dict.get(key));
+	}
+
+	/**
+	 * Creates the caption for an object that is a dictionary entry.
+	 * @param key		a key in a dictionary
+	 * @param valObj	the value corresponding with the key
+	 * @return	a caption for the object corresponding with the key in the dictionary.
+	 */
+	protected static String getDictionaryEntryCaption(PdfName key, PdfObject valObj) {
 		StringBuffer buf = new StringBuffer(key.toString());
 		buf.append(": ");
-        PdfObject valObj = dict.get(key);
-        if (valObj.isIndirect()) {
-            buf.append( getCaption( valObj ) );
-        } else {
-            buf.append(dict.get(key).toString());
-        }
-        return buf.toString();
+		if (valObj == null) {
+			buf.append("null");
+		}
+		else if (valObj.isIndirect()) {
+			buf.append(getCaption(valObj));
+		}
+		else if (valObj.isArray()) {
+			appendArray(buf, (PdfArray)valObj);
+		}
+		else {
+			buf.append(valObj.toString());
+		}
+		return truncate(buf.toString());
+	}
+
+	/**
+	 * Appends the elements of an array until the caption is long enough.
+	 * @param buf	the caption
+	 * @param array	an array
+	 */
+	private static void appendArray(StringBuffer buf, PdfArray array) {
+		buf.append('[');
+		int i = 0;
+		for (PdfObject element : array) {
+			if (buf.length() > MAX_CAPTION)
+				break;
+			if (i++ > 0)
+				buf.append(", ");
+			buf.append(element == null ? "null" : element.isArray() ? "Array" : element.toString());
+		}
+		buf.append(']');
+	}
+
+	/**
+	 * Gets the caption of the object an indirect reference refers to.
+	 * @param object	an indirect reference
+	 * @return	a caption for the referenced object
+	 */
+	private static String getTargetCaption(PdfObject object) {
+		if (!(object instanceof PRIndirectReference))
+			return getCaption(PdfReader.getPdfObjectRelease(object));
+		PRIndirectReference ref = (PRIndirectReference)object;
+		PdfReader reader = ref.getReader();
+		synchronized(TARGET_CAPTIONS) {
+			Map<Integer, String> captions = TARGET_CAPTIONS.get(reader);
+			if (captions == null) {
+				captions = new LinkedHashMap<Integer, String>(16, 0.75f, true) {
+					@Override
+					protected boolean removeEldestEntry(Map.Entry<Integer, String> eldest) {
+						return size() > MAX_TARGET_CAPTIONS;
+					}
+					private static final long serialVersionUID = 5377426318540154423L;
+				};
+				TARGET_CAPTIONS.put(reader, captions);
+			}
+			String caption = captions.get(ref.getNumber());
+			if (caption == null) {
+				// a partial reader would otherwise keep the object only to show its caption
+				caption = getCaption(PdfReader.getPdfObjectRelease(object));
+				captions.put(ref.getNumber(), caption);
+			}
+			return caption;
+		}
+	}
+
+	/**
+	 * Shortens a caption to MAX_CAPTION characters.
+	 * @param caption	a caption
+	 * @return	the caption, or its first characters followed by an ellipsis
+	 */
+	private static String truncate(String caption) {
+		if (caption == null || caption.length() <= MAX_CAPTION)
+			return caption;
+		return caption.substring(0, MAX_CAPTION) + "...";
 	}
 
 	/**
@@ -293,19 +523,14 @@ public class PdfObjectTreeNode extends IconTreeNode {
 	 * @return	the treepath to an ancestor
 	 */
 	public PdfObjectTreeNode getAncestor() {
-        try{
-		    if (isRecursive()) {
-			    PdfObjectTreeNode node = this;
-			    while(true) {
-				    node = (PdfObjectTreeNode)node.getParent();
-				    if (node.isIndirectReference() && node.getNumber() == getNumber()) {
-					    return node;
-                    }
-			    }
-		    }
-        }catch (NullPointerException ex){
-             System.out.println(this.toString() + " Parentnode is null.");
-        }
+		if (!isRecursive())
+			return null;
+		int ref = getNumber();
+		for (TreeNode ancestor = getParent(); ancestor != null; ancestor = ancestor.getParent()) {
+			PdfObjectTreeNode node = (PdfObjectTreeNode)ancestor;
+			if (node.getPdfObject() != null && node.isIndirectReference() && node.getNumber() == ref)
+				return node;
+		}
 		return null;
 	}
 
@@ -0,0 +1,147 @@
+/*
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 2007-2015 iText Group NV
+ * Authors: Bruno Lowagie et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.rups.view.itext.treenodes;
+
+import com.itextpdf.text.pdf.PdfArray;
+import com.itextpdf.text.pdf.PdfDictionary;
+import com.itextpdf.text.pdf.PdfName;
+import com.itextpdf.text.pdf.PdfObject;
+
+/**
+ * A tree node that groups a range of the entries of a large array or
+ * dictionary, so that a container with hundreds of thousands of entries
+ * doesn't get as many children at once.
+ */
+public class PdfRangeTreeNode extends PdfObjectTreeNode {
+
+	/** The index of the first entry in the range. */
+	protected int from;
+	/** The index after the last entry in the range. */
+	protected int to;
+	/** The keys of the dictionary, in the order of the indexes (null for arrays). */
+	protected PdfName[] keys;
+
+	/**
+	 * Creates a node for a range of the elements of an array.
+	 * @param array	the array
+	 * @param from	the index of the first element in the range
+	 * @param to	the index after the last element in the range
+	 */
+	public PdfRangeTreeNode(PdfArray array, int from, int to) {
+		this(array, null, from, to);
+	}
+
+	/**
+	 * Creates a node for a range of the entries of a dictionary.
+	 * @param dict	the dictionary
+	 * @param keys	the keys of the dictionary, shared by all the ranges
+	 * @param from	the index of the first key in the range
+	 * @param to	the index after the last key in the range
+	 */
+	public PdfRangeTreeNode(PdfDictionary dict, PdfName[] keys, int from, int to) {
+		this((PdfObject)dict, keys, from, to);
+	}
+
+	/**
+	 * Creates a node for a range of the entries of a container.
+	 */
+	private PdfRangeTreeNode(PdfObject object, PdfName[] keys, int from, int to) {
+		super("array.png", object);
+		this.keys = keys;
+		this.from = from;
+		this.to = to;
+		setUserObject("[" + from + ".." + (to - 1) + "]");
+	}
+
+	/**
+	 * Getter for the index of the first entry in the range.
+	 * @return	an index in the array or in the keys of the dictionary
+	 */
+	public int getFrom() {
+		return from;
+	}
+
+	/**
+	 * Getter for the index after the last entry in the range.
+	 * @return	an index in the array or in the keys of the dictionary
+	 */
+	public int getTo() {
+		return to;
+	}
+
+	/**
+	 * Getter for the keys of the dictionary.
+	 * @return	the keys of the dictionary, or null if the container is an array
+	 */
+	public PdfName[] getKeys() {
+		return keys;
+	}
+
+	/**
+	 * Tells you if a dictionary key belongs to this range.
+	 * @param key	a dictionary key
+	 * @return	true if the key is one of the keys in the range
+	 */
+	public boolean containsKey(PdfName key) {
+		if (keys == null)
+			return false;
+		for (int i = from; i < to; i++) {
+			if (keys[i].equals(key))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * A range is never empty.
+	 * @see com.itextpdf.rups.view.itext.treenodes.PdfObjectTreeNode#isLeaf()
+	 */
+	@Override
+	public boolean isLeaf() {
+		return false;
+	}
+
+	/** A serial version UID. */
+	private static final long serialVersionUID = -2846219571108394275L;
+}
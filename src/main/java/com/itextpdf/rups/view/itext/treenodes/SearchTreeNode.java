@@ -0,0 +1,106 @@
+/*
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 2007-2015 iText Group NV
+ * Authors: Bruno Lowagie et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.rups.view.itext.treenodes;
+
+import com.itextpdf.rups.view.icons.IconTreeNode;
+
+/**
+ * A node in the tree with the results of a search: an indirect
+ * object that matches, or a key or value inside that object.
+ */
+public class SearchTreeNode extends IconTreeNode {
+
+	/** The number of the indirect object (-1 for the root). */
+	protected int number;
+	/** The keys and indexes that lead to the value inside the object (null for an object). */
+	protected Object[] steps;
+
+	/** Creates the root node of the search results. */
+	public SearchTreeNode() {
+		super("pdf.png", "Search results");
+		number = -1;
+	}
+
+	/**
+	 * Creates a node of the search results.
+	 * @param icon		the filename of the icon
+	 * @param number	the number of the indirect object
+	 * @param caption	the caption of the node
+	 */
+	public SearchTreeNode(String icon, int number, String caption) {
+		super(icon, caption);
+		this.number = number;
+	}
+
+	/**
+	 * Creates a node of the search results for a key or value inside an object.
+	 * @param icon		the filename of the icon
+	 * @param number	the number of the indirect object
+	 * @param steps		the keys (PdfName) and indexes (Integer) that lead to the value
+	 * @param caption	the caption of the node
+	 */
+	public SearchTreeNode(String icon, int number, Object[] steps, String caption) {
+		this(icon, number, caption);
+		this.steps = steps;
+	}
+
+	/**
+	 * Getter for the number of the indirect object.
+	 * @return	an object number, or -1 for the root
+	 */
+	public int getNumber() {
+		return number;
+	}
+
+	/**
+	 * Getter for the path to the value inside the indirect object.
+	 * @return	keys (PdfName) and indexes (Integer), or null for the node of an object
+	 */
+	public Object[] getSteps() {
+		return steps;
+	}
+
+	/** A serial version UID. */
+	private static final long serialVersionUID = 8270219618465097263L;
+}
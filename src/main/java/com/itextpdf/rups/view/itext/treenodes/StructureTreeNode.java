@@ -45,52 +45,138 @@ package com.itextpdf.rups.view.itext.treenodes;
 
 import com.itextpdf.rups.view.icons.IconTreeNode;
 import com.itextpdf.text.pdf.PdfDictionary;
+import com.itextpdf.text.pdf.PdfIndirectReference;
 import com.itextpdf.text.pdf.PdfName;
+import com.itextpdf.text.pdf.PdfNumber;
+import com.itextpdf.text.pdf.PdfObject;
+import com.itextpdf.text.pdf.PdfReader;
 
+/**
+ * A node in the StructureTree: the root, a structure element, or a
+ * marked-content or object reference. The child nodes of an element
+ * are only created when they are asked for (see StructureTreeModel).
+ */
 public class StructureTreeNode extends IconTreeNode {
 
-	/** The corresponding tree node in the PdfTree. */
-	protected PdfObjectTreeNode object_node;
+	/** The object number of the element (or of the nearest indirect element above it). */
+	protected int number = -1;
+	/** The /K entry with the kids of the element (null if there are none). */
+	protected PdfObject kids;
+	/** Indicates if the child nodes have been created. */
+	protected boolean loaded = false;
 
 	/**
 	 * Creates the root node for the structure tree.
 	 */
 	public StructureTreeNode() {
 		super("chart_organisation.png", "Structure Tree");
+		loaded = true;
+	}
+
+	/**
+	 * Creates the root node for the structure tree.
+	 * @param	root	the structure tree root dictionary
+	 */
+	public StructureTreeNode(PdfDictionary root) {
+		super("chart_organisation.png", "Structure Tree");
+		kids = root.get(PdfName.K);
+	}
+
+	/**
+	 * Creates a node of the structure tree.
+	 * @param	icon	the filename of the icon
+	 * @param	caption	the caption of the node
+	 * @param	number	the object number of the node
+	 * @param	kids	the /K entry (or null)
+	 */
+	protected StructureTreeNode(String icon, String caption, int number, PdfObject kids) {
+		super(icon, caption);
+		this.number = number;
+		this.kids = kids;
+		loaded = kids == null;
 	}
-	
+
 	/**
+	 * Creates a node for a kid of a structure element.
+	 * @param	kid		an element of the /K entry of the parent
+	 * @param	parent	the object number of the parent
+	 * @return	a node for a structure element, a marked-content reference or an object reference
 	 */
-	public StructureTreeNode(PdfObjectTreeNode node, String icon) {
-		super(icon);
-		this.object_node = node;
-		if (node != null && node.isDictionary()) {
-			PdfDictionary dict = (PdfDictionary)node.getPdfObject();
-			if (dict.get(PdfName.TYPE) == null || dict.checkType(PdfName.STRUCTELEM)) {
-				StringBuffer buf = new StringBuffer();
-				if (dict.get(PdfName.S) != null)
-					buf.append(dict.get(PdfName.S).toString());
-				if (dict.get(PdfName.T) != null) {
-					buf.append(" -> ");
-					buf.append(dict.get(PdfName.T).toString());
-				}
-				this.setUserObject(buf.toString());
-				return;
-			}
+	public static StructureTreeNode getInstance(PdfObject kid, int parent) {
+		int number = parent;
+		PdfObject object = kid;
+		if (kid instanceof PdfIndirectReference) {
+			number = ((PdfIndirectReference)kid).getNumber();
+			object = PdfReader.getPdfObjectRelease(kid);
 		}
-		this.setUserObject(node);
+		if (object instanceof PdfNumber)
+			return new StructureTreeNode("bullet_go.png", "MCID " + ((PdfNumber)object).intValue(), number, null);
+		if (!(object instanceof PdfDictionary))
+			return new StructureTreeNode("bullet_go.png", String.valueOf(object), number, null);
+		PdfDictionary dict = (PdfDictionary)object;
+		if (dict.checkType(PdfName.MCR))
+			return new StructureTreeNode("bullet_go.png", "MCID " + dict.get(PdfName.MCID), number, null);
+		if (dict.checkType(PdfName.OBJR)) {
+			PdfObject obj = dict.get(PdfName.OBJ);
+			if (obj instanceof PdfIndirectReference)
+				number = ((PdfIndirectReference)obj).getNumber();
+			return new StructureTreeNode("bullet_go.png", "Object " + obj, number, null);
+		}
+		StringBuffer buf = new StringBuffer();
+		if (dict.get(PdfName.S) != null)
+			buf.append(dict.get(PdfName.S).toString());
+		if (dict.get(PdfName.T) != null) {
+			buf.append(" -> ");
+			buf.append(dict.get(PdfName.T).toString());
+		}
+		return new StructureTreeNode("chart_organisation.png", buf.toString(), number, dict.get(PdfName.K));
+	}
+
+	/**
+	 * Getter for the object number of the element.
+	 * @return	an object number, or -1 for the root
+	 */
+	public int getNumber() {
+		return number;
+	}
+
+	/**
+	 * Getter for the kids of the element.
+	 * @return	the /K entry, or null
+	 */
+	public PdfObject getKids() {
+		return kids;
+	}
+
+	/**
+	 * Tells you if the child nodes have been created.
+	 * @return	true once the children are loaded
+	 */
+	public boolean isLoaded() {
+		return loaded;
+	}
+
+	/**
+	 * Set this to true once the child nodes have been created.
+	 * @param	loaded	true if the children are loaded
+	 */
+	public void setLoaded(boolean loaded) {
+		this.loaded = loaded;
 	}
 
-    /**
-     * Gets the node in the PdfTree that corresponds with this
-     * OutlineTreeNode.
-     * @return	a PdfObjectTreeNode in the PdfTree
-     */
-	public PdfObjectTreeNode getCorrespondingPdfObjectNode() {
-		return object_node;
+	/**
+	 * As long as the child nodes haven't been created,
+	 * an element with kids isn't a leaf.
+	 * @see javax.swing.tree.DefaultMutableTreeNode#isLeaf()
+	 */
+	@Override
+	public boolean isLeaf() {
+		if (!loaded)
+			return false;
+		return super.isLeaf();
 	}
 
 	/** Serial version UID */
 	private static final long serialVersionUID = 6822664148126160723L;
 
-}
+}
\ No newline at end of file
@@ -51,12 +51,25 @@ import com.itextpdf.text.pdf.PdfObject;
 
 import javax.swing.table.AbstractTableModel;
 import java.util.ArrayList;
+import java.util.Iterator;
 
 /**
  * A TableModel in case we want to show a PDF dictionary in a JTable.
  */
 public class DictionaryTableModel extends AbstractTableModel {
 
+    /**
+     * Is told when an entry of the dictionary was changed, added or removed in the table.
+     */
+    public interface DictionaryListener {
+        /**
+         * Called after the dictionary was changed.
+         *
+         * @param dictionary the dictionary that was changed
+         */
+        void dictionaryChanged(PdfDictionary dictionary);
+    }
+
     /**
      * A serial version UID.
      */
@@ -66,9 +79,18 @@ public class DictionaryTableModel extends AbstractTableModel {
      */
     protected PdfDictionary dictionary;
     /**
-     * An ArrayList with the dictionary keys.
+     * An ArrayList with the dictionary keys that were fetched so far;
+     * the keys are only fetched up to the last row that is shown.
      */
     protected ArrayList<PdfName> keys = new ArrayList<PdfName>();
+    /**
+     * Iterates over the keys that weren't fetched yet (null once all keys are fetched).
+     */
+    protected Iterator<PdfName> remaining;
+    /**
+     * The listener that is told about changes (can be null).
+     */
+    protected DictionaryListener listener;
 
     /**
      * Creates the TableModel.
@@ -77,8 +99,51 @@ public class DictionaryTableModel extends AbstractTableModel {
      */
     public DictionaryTableModel(PdfDictionary dictionary) {
         this.dictionary = dictionary;
-        for (PdfName n : dictionary.getKeys())
-            this.keys.add(n);
+        this.remaining = dictionary.getKeys().iterator();
+    }
+
+    /**
+     * Sets the listener that is told when the dictionary is changed.
+     *
+     * @param listener a listener (can be null)
+     */
+    public void setDictionaryListener(DictionaryListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Tells the listener that the dictionary was changed.
+     */
+    protected void fireDictionaryChanged() {
+        if (listener != null)
+            listener.dictionaryChanged(dictionary);
+    }
+
+    /**
+     * Gets the key that is shown in a row, fetching the keys up to that row.
+     *
+     * @param rowIndex the index of a row with an entry of the dictionary
+     * @return a key of the dictionary
+     */
+    protected PdfName getKey(int rowIndex) {
+        fetchKeys(rowIndex + 1);
+        return keys.get(rowIndex);
+    }
+
+    /**
+     * Fetches the keys of the dictionary up to a number of keys.
+     * Keys are fetched in full before the dictionary is changed,
+     * so that the rows keep their order.
+     *
+     * @param count the number of keys that are needed
+     */
+    protected void fetchKeys(int count) {
+        if (remaining == null)
+            return;
+        while (keys.size() < count && remaining.hasNext())
+            keys.add(remaining.next());
+        if (!remaining.hasNext())
+            remaining = null;
     }
 
     /**
@@ -98,6 +163,9 @@ public class DictionaryTableModel extends AbstractTableModel {
 
     @Override
     public boolean isCellEditable(int rowIndex, int columnIndex) {
+        // a summary can't be edited as if it were the value
+        if (columnIndex == 1 && rowIndex < getRowCount() - 1)
+            return getValueAt(rowIndex, columnIndex) instanceof PdfObject;
         return columnIndex < 2;
     }
 
@@ -105,7 +173,7 @@ public class DictionaryTableModel extends AbstractTableModel {
      * @see javax.swing.table.TableModel#getValueAt(int, int)
      */
     public Object getValueAt(int rowIndex, int columnIndex) {
-        int lastRow = keys.size();
+        int lastRow = getRowCount() - 1;
 
         if (rowIndex == lastRow) {
             if (columnIndex == 0) {
@@ -118,9 +186,9 @@ public class DictionaryTableModel extends AbstractTableModel {
 
         switch (columnIndex) {
             case 0:
-                return keys.get(rowIndex);
+                return getKey(rowIndex);
             case 1:
-                return dictionary.get(keys.get(rowIndex));
+                return PdfArrayTableModel.summarize(dictionary.get(getKey(rowIndex)));
             default:
                 return null;
         }
@@ -146,23 +214,31 @@ public class DictionaryTableModel extends AbstractTableModel {
                     key = key.replace("/", "");
                 }
 
+                fetchKeys(Integer.MAX_VALUE);
                 PdfName oldName = keys.get(rowIndex);
                 PdfName newName = new PdfName(key);
+                // renaming onto another key would hide one of the rows
+                if (dictionary.contains(newName)) {
+                    return;
+                }
                 keys.set(rowIndex, newName);
 
                 PdfObject pdfObject = dictionary.get(oldName);
                 dictionary.remove(oldName);
                 dictionary.put(newName, pdfObject);
+                fireDictionaryChanged();
             } else {
                 // todo improve situation here
                 String value = (String) aValue;
-                PdfObject pdfObject = dictionary.get(keys.get(rowIndex));
+                PdfName name = getKey(rowIndex);
+                PdfObject pdfObject = dictionary.get(name);
 
                 if ( pdfObject instanceof PdfArray) {
                     value = value.replaceAll(",", "");
                 }
 
-                dictionary.put(keys.get(rowIndex), new PdfLiteral(value));
+                dictionary.put(name, new PdfLiteral(value));
+                fireDictionaryChanged();
             }
         }
     }
@@ -185,10 +261,12 @@ public class DictionaryTableModel extends AbstractTableModel {
     }
 
     public void removeRow(int rowNumber) {
+        fetchKeys(Integer.MAX_VALUE);
         PdfName name = keys.get(rowNumber);
         keys.remove(rowNumber);
         dictionary.remove(name);
 
+        fireDictionaryChanged();
         fireTableDataChanged();
     }
 
@@ -198,10 +276,12 @@ public class DictionaryTableModel extends AbstractTableModel {
         }
 
         PdfName newEntry = new PdfName(keyField);
+        fetchKeys(Integer.MAX_VALUE);
 
         if ( !dictionary.contains(newEntry)) {
             dictionary.put(newEntry, new PdfLiteral(type, valueField));
             keys.add(newEntry);
+            fireDictionaryChanged();
         }
 
         fireTableDataChanged();
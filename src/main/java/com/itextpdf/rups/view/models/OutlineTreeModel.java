@@ -0,0 +1,131 @@
+/*
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 2007-2015 iText Group NV
+ * Authors: Bruno Lowagie et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.rups.view.models;
+
+import java.util.BitSet;
+
+import javax.swing.tree.DefaultTreeModel;
+
+import com.itextpdf.rups.view.itext.treenodes.OutlineTreeNode;
+import com.itextpdf.text.pdf.PdfDictionary;
+import com.itextpdf.text.pdf.PdfName;
+import com.itextpdf.text.pdf.PdfObject;
+import com.itextpdf.text.pdf.PdfReader;
+
+/**
+ * The model of the OutlineTree. The children of an outline item are only
+ * read when the tree asks for them: the /First entry and the /Next chain
+ * are followed in a loop, and an item that is already in the tree ends
+ * the chain, so that loops in the outline don't hang the tree.
+ */
+public class OutlineTreeModel extends DefaultTreeModel {
+
+	/** The reader of the document. */
+	protected PdfReader reader;
+	/** The object numbers of the outline items that are in the tree. */
+	protected BitSet placed = new BitSet();
+
+	/**
+	 * Creates the model of the OutlineTree.
+	 * @param root		the root node
+	 * @param reader	the reader of the document
+	 */
+	public OutlineTreeModel(OutlineTreeNode root, PdfReader reader) {
+		super(root);
+		this.reader = reader;
+	}
+
+	/**
+	 * @see javax.swing.tree.DefaultTreeModel#getChildCount(java.lang.Object)
+	 */
+	@Override
+	public int getChildCount(Object parent) {
+		load(parent);
+		return super.getChildCount(parent);
+	}
+
+	/**
+	 * @see javax.swing.tree.DefaultTreeModel#getChild(java.lang.Object, int)
+	 */
+	@Override
+	public Object getChild(Object parent, int index) {
+		load(parent);
+		return super.getChild(parent, index);
+	}
+
+	/**
+	 * @see javax.swing.tree.DefaultTreeModel#getIndexOfChild(java.lang.Object, java.lang.Object)
+	 */
+	@Override
+	public int getIndexOfChild(Object parent, Object child) {
+		load(parent);
+		return super.getIndexOfChild(parent, child);
+	}
+
+	/**
+	 * Creates the child nodes of an outline item if that hasn't happened yet.
+	 * @param parent	a node in the tree
+	 */
+	protected void load(Object parent) {
+		if (!(parent instanceof OutlineTreeNode))
+			return;
+		OutlineTreeNode node = (OutlineTreeNode)parent;
+		if (node.isLoaded())
+			return;
+		node.setLoaded(true);
+		int ref = node.getFirst();
+		while (ref > 0 && !placed.get(ref)) {
+			placed.set(ref);
+			PdfObject object = reader.getPdfObjectRelease(ref);
+			if (!(object instanceof PdfDictionary))
+				break;
+			PdfDictionary item = (PdfDictionary)object;
+			node.add(new OutlineTreeNode(ref, item));
+			ref = OutlineTreeNode.getNumber(item.get(PdfName.NEXT));
+		}
+	}
+
+	/** A serial version UID. */
+	private static final long serialVersionUID = -6371429960834119873L;
+}
@@ -46,6 +46,8 @@ package com.itextpdf.rups.view.models;
 import javax.swing.table.AbstractTableModel;
 
 import com.itextpdf.text.pdf.PdfArray;
+import com.itextpdf.text.pdf.PdfDictionary;
+import com.itextpdf.text.pdf.PdfObject;
 
 /**
  * A TableModel in case we want to show a PDF array in a JTable.
@@ -54,6 +56,8 @@ public class PdfArrayTableModel extends AbstractTableModel {
 	
 	/** A serial version UID. */
 	private static final long serialVersionUID = 4665485782853993708L;
+	/** Nested arrays and dictionaries with more entries are summarized instead of shown in full. */
+	public static final int MAX_SHOWN = 100;
 	/** The PDF array. */
 	protected PdfArray array;
 
@@ -85,12 +89,47 @@ public class PdfArrayTableModel extends AbstractTableModel {
 	public Object getValueAt(int rowIndex, int columnIndex) {
 		switch (columnIndex) {
 		case 0:
-			return array.getPdfObject(rowIndex);
+			return getElement(rowIndex);
 		default:
 			return null;
 		}
 	}
 
+	/**
+	 * Gets an element of the array; large nested containers are replaced
+	 * by a summary, so that rendering a row doesn't depend on their size.
+	 * @param rowIndex	the index of the element
+	 * @return	a PDF object or a short description
+	 */
+	protected Object getElement(int rowIndex) {
+		return summarize(array.getPdfObject(rowIndex));
+	}
+
+	/**
+	 * Replaces arrays and dictionaries with more than MAX_SHOWN entries
+	 * by a short description.
+	 * @param object	a PDF object (can be null)
+	 * @return	the object itself or a short description
+	 */
+	public static Object summarize(PdfObject object) {
+		if (object == null)
+			return null;
+		switch (object.type()) {
+		case PdfObject.ARRAY:
+			int size = ((PdfArray)object).size();
+			if (size > MAX_SHOWN)
+				return "Array with " + size + " elements";
+			break;
+		case PdfObject.DICTIONARY:
+		case PdfObject.STREAM:
+			size = ((PdfDictionary)object).size();
+			if (size > MAX_SHOWN)
+				return (object.isStream() ? "Stream" : "Dictionary") + " with " + size + " entries";
+			break;
+		}
+		return object;
+	}
+
 	/**
 	 * @see javax.swing.table.AbstractTableModel#getColumnName(int)
 	 */
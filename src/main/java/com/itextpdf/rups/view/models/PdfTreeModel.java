@@ -0,0 +1,139 @@
+/*
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 2007-2015 iText Group NV
+ * Authors: Bruno Lowagie et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.rups.view.models;
+
+import java.util.List;
+
+import javax.swing.tree.DefaultTreeModel;
+import javax.swing.tree.TreeNode;
+
+import com.itextpdf.rups.model.TreeNodeFactory;
+import com.itextpdf.rups.view.itext.treenodes.PdfObjectTreeNode;
+
+/**
+ * The model of the PdfTree. The child nodes of a PDF object are only
+ * created when the tree asks for them, which only happens for nodes
+ * that are expanded; the tree asks the nodes themselves whether they
+ * are leaves, which doesn't create anything.
+ * This way, only the nodes that are visible (and the indirect objects
+ * that have been asked for) exist.
+ */
+public class PdfTreeModel extends DefaultTreeModel {
+
+	/** The factory that creates the child nodes (null if no file is open). */
+	protected TreeNodeFactory factory;
+
+	/**
+	 * Creates the model of the PdfTree.
+	 * @param root		the trailer node
+	 * @param factory	the factory that creates the child nodes (can be null)
+	 */
+	public PdfTreeModel(TreeNode root, TreeNodeFactory factory) {
+		super(root);
+		this.factory = factory;
+	}
+
+	/**
+	 * @see javax.swing.tree.DefaultTreeModel#getChildCount(java.lang.Object)
+	 */
+	@Override
+	public int getChildCount(Object parent) {
+		expand(parent);
+		return super.getChildCount(parent);
+	}
+
+	/**
+	 * @see javax.swing.tree.DefaultTreeModel#getChild(java.lang.Object, int)
+	 */
+	@Override
+	public Object getChild(Object parent, int index) {
+		expand(parent);
+		return super.getChild(parent, index);
+	}
+
+	/**
+	 * @see javax.swing.tree.DefaultTreeModel#getIndexOfChild(java.lang.Object, java.lang.Object)
+	 */
+	@Override
+	public int getIndexOfChild(Object parent, Object child) {
+		expand(parent);
+		return super.getIndexOfChild(parent, child);
+	}
+
+	/**
+	 * Creates the child nodes of a node if that hasn't happened yet.
+	 * @param parent	a node in the tree
+	 */
+	protected void expand(Object parent) {
+		if (factory != null && parent instanceof PdfObjectTreeNode)
+			factory.expandNode((PdfObjectTreeNode)parent);
+	}
+
+	/**
+	 * Lets the factory know that a node was collapsed; if there are
+	 * too many nodes, the child nodes of the least recently collapsed
+	 * nodes are released.
+	 * @param node	the node that was collapsed
+	 */
+	public void nodeCollapsed(Object node) {
+		if (factory == null || !(node instanceof PdfObjectTreeNode))
+			return;
+		List<PdfObjectTreeNode> released = factory.collapseNode((PdfObjectTreeNode)node);
+		for (PdfObjectTreeNode n : released)
+			nodeStructureChanged(n);
+	}
+
+	/**
+	 * Lets the factory know that a node was expanded, so that its
+	 * child nodes are kept.
+	 * @param node	the node that was expanded
+	 */
+	public void nodeExpanded(Object node) {
+		if (factory != null && node instanceof PdfObjectTreeNode)
+			factory.reopenNode((PdfObjectTreeNode)node);
+	}
+
+	/** A serial version UID. */
+	private static final long serialVersionUID = 4307268123004858203L;
+}
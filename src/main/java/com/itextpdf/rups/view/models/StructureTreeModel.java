@@ -0,0 +1,147 @@
+/*
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 2007-2015 iText Group NV
+ * Authors: Bruno Lowagie et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.rups.view.models;
+
+import java.util.BitSet;
+
+import javax.swing.tree.DefaultTreeModel;
+
+import com.itextpdf.rups.view.itext.treenodes.StructureTreeNode;
+import com.itextpdf.text.pdf.PdfArray;
+import com.itextpdf.text.pdf.PdfIndirectReference;
+import com.itextpdf.text.pdf.PdfObject;
+import com.itextpdf.text.pdf.PdfReader;
+
+/**
+ * The model of the StructureTree. The kids of a structure element are
+ * only read when the tree asks for them. An element that is already in
+ * the tree isn't added again, so that loops don't hang the tree.
+ */
+public class StructureTreeModel extends DefaultTreeModel {
+
+	/** The object numbers of the elements that are in the tree. */
+	protected BitSet placed = new BitSet();
+
+	/**
+	 * Creates the model of the StructureTree.
+	 * @param root	the root node
+	 */
+	public StructureTreeModel(StructureTreeNode root) {
+		super(root);
+	}
+
+	/**
+	 * @see javax.swing.tree.DefaultTreeModel#getChildCount(java.lang.Object)
+	 */
+	@Override
+	public int getChildCount(Object parent) {
+		load(parent);
+		return super.getChildCount(parent);
+	}
+
+	/**
+	 * @see javax.swing.tree.DefaultTreeModel#getChild(java.lang.Object, int)
+	 */
+	@Override
+	public Object getChild(Object parent, int index) {
+		load(parent);
+		return super.getChild(parent, index);
+	}
+
+	/**
+	 * @see javax.swing.tree.DefaultTreeModel#getIndexOfChild(java.lang.Object, java.lang.Object)
+	 */
+	@Override
+	public int getIndexOfChild(Object parent, Object child) {
+		load(parent);
+		return super.getIndexOfChild(parent, child);
+	}
+
+	/**
+	 * Creates the child nodes of a structure element if that hasn't happened yet.
+	 * @param parent	a node in the tree
+	 */
+	protected void load(Object parent) {
+		if (!(parent instanceof StructureTreeNode))
+			return;
+		StructureTreeNode node = (StructureTreeNode)parent;
+		if (node.isLoaded())
+			return;
+		node.setLoaded(true);
+		PdfObject kids = node.getKids();
+		if (kids instanceof PdfIndirectReference) {
+			PdfObject resolved = PdfReader.getPdfObjectRelease(kids);
+			if (resolved instanceof PdfArray)
+				kids = resolved;
+		}
+		if (kids instanceof PdfArray) {
+			PdfArray array = (PdfArray)kids;
+			for (int i = 0; i < array.size(); i++)
+				addKid(node, array.getPdfObject(i));
+		}
+		else {
+			addKid(node, kids);
+		}
+	}
+
+	/**
+	 * Adds a node for a kid, unless the kid is an element that is already in the tree.
+	 * @param node	the parent node
+	 * @param kid	an element of the /K entry of the parent
+	 */
+	protected void addKid(StructureTreeNode node, PdfObject kid) {
+		if (kid == null)
+			return;
+		if (kid instanceof PdfIndirectReference) {
+			int ref = ((PdfIndirectReference)kid).getNumber();
+			if (placed.get(ref))
+				return;
+			placed.set(ref);
+		}
+		node.add(StructureTreeNode.getInstance(kid, node.getNumber()));
+	}
+
+	/** A serial version UID. */
+	private static final long serialVersionUID = 2289373406453124419L;
+}
@@ -0,0 +1,235 @@
+/*
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 2007-2015 iText Group NV
+ * Authors: Bruno Lowagie et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.rups.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import com.itextpdf.text.pdf.IntHashtable;
+import com.itextpdf.text.pdf.PdfNull;
+import com.itextpdf.text.pdf.PdfObject;
+
+/**
+ * Compares the memory use and the speed of the index of the indirect objects
+ * as it used to be (two IntHashtables and a list with a PdfNull for every
+ * object) with the index of the IndirectObjectFactory (two int arrays).
+ * The index is built for a synthetic xref table in which every tenth object
+ * number is free. It isn't run by the build; start it with:
+ * <pre>
+ * java -cp target/classes:target/test-classes:itextpdf.jar com.itextpdf.rups.benchmark.IndexBenchmark [objects]
+ * </pre>
+ */
+public class IndexBenchmark {
+
+	/** The number of times the lookups are repeated. */
+	public static final int ROUNDS = 5;
+
+	/** The highest object number in the synthetic xref table. */
+	protected int n;
+
+	/** The old index: from index to reference number. */
+	protected IntHashtable oldIdxToRef;
+	/** The old index: from reference number to index. */
+	protected IntHashtable oldRefToIdx;
+	/** The old list of objects. */
+	protected ArrayList<PdfObject> oldObjects;
+	/** The new index: from index to reference number. */
+	protected int[] newIdxToRef;
+	/** The new index: from reference number to index. */
+	protected int[] newRefToIdx;
+
+	/**
+	 * Creates a benchmark.
+	 * @param n	the highest object number in the synthetic xref table
+	 */
+	public IndexBenchmark(int n) {
+		this.n = n;
+	}
+
+	/**
+	 * Tells if an object number is in use in the synthetic xref table.
+	 * @param ref	an object number
+	 * @return	false for every tenth object number
+	 */
+	protected static boolean exists(int ref) {
+		return ref % 10 != 0;
+	}
+
+	/**
+	 * Builds the index the way it used to be built.
+	 */
+	protected void buildOld() {
+		oldIdxToRef = new IntHashtable();
+		oldRefToIdx = new IntHashtable();
+		oldObjects = new ArrayList<PdfObject>();
+		for (int ref = 0; ref <= n; ref++) {
+			if (exists(ref)) {
+				int idx = oldObjects.size();
+				oldIdxToRef.put(idx, ref);
+				oldRefToIdx.put(ref, idx);
+				oldObjects.add(PdfNull.PDFNULL);
+			}
+		}
+	}
+
+	/**
+	 * Builds the index the way the IndirectObjectFactory builds it.
+	 */
+	protected void buildNew() {
+		int size = 0;
+		newIdxToRef = new int[16];
+		newRefToIdx = new int[n + 1];
+		Arrays.fill(newRefToIdx, -1);
+		for (int ref = 0; ref <= n; ref++) {
+			if (exists(ref)) {
+				if (size == newIdxToRef.length) {
+					int[] tmp = new int[Math.min(size + (size >> 1), n + 1)];
+					System.arraycopy(newIdxToRef, 0, tmp, 0, size);
+					newIdxToRef = tmp;
+				}
+				newIdxToRef[size] = ref;
+				newRefToIdx[ref] = size++;
+			}
+		}
+		if (newIdxToRef.length > size) {
+			int[] tmp = new int[size];
+			System.arraycopy(newIdxToRef, 0, tmp, 0, size);
+			newIdxToRef = tmp;
+		}
+	}
+
+	/**
+	 * Looks up every object in the old index, both ways.
+	 * @return	a checksum
+	 */
+	protected long lookupOld() {
+		long sum = 0;
+		int size = oldObjects.size();
+		for (int i = 0; i < size; i++) {
+			sum += oldRefToIdx.get(oldIdxToRef.get(i));
+		}
+		return sum;
+	}
+
+	/**
+	 * Looks up every object in the new index, both ways.
+	 * @return	a checksum
+	 */
+	protected long lookupNew() {
+		long sum = 0;
+		int size = newIdxToRef.length;
+		for (int i = 0; i < size; i++) {
+			sum += newRefToIdx[newIdxToRef[i]];
+		}
+		return sum;
+	}
+
+	/**
+	 * Gets the memory that is in use after a garbage collection.
+	 * @return	a number of bytes
+	 */
+	protected static long used() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+			try {
+				Thread.sleep(100);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	/**
+	 * Builds both indexes and prints their size and speed.
+	 */
+	public void run() {
+		long before = used();
+		long start = System.nanoTime();
+		buildOld();
+		long built = System.nanoTime();
+		long oldMemory = used() - before;
+		long lookup = System.nanoTime();
+		long oldSum = 0;
+		for (int i = 0; i < ROUNDS; i++)
+			oldSum += lookupOld();
+		long end = System.nanoTime();
+		System.out.println(String.format("IntHashtable index: %6.1f MB, build %5d ms, %d lookups %5d ms",
+				oldMemory / 1048576.0, (built - start) / 1000000, ROUNDS, (end - lookup) / 1000000));
+		oldIdxToRef = null;
+		oldRefToIdx = null;
+		oldObjects = null;
+
+		before = used();
+		start = System.nanoTime();
+		buildNew();
+		built = System.nanoTime();
+		long newMemory = used() - before;
+		lookup = System.nanoTime();
+		long newSum = 0;
+		for (int i = 0; i < ROUNDS; i++)
+			newSum += lookupNew();
+		end = System.nanoTime();
+		System.out.println(String.format("int[] index:        %6.1f MB, build %5d ms, %d lookups %5d ms",
+				newMemory / 1048576.0, (built - start) / 1000000, ROUNDS, (end - lookup) / 1000000));
+		if (oldSum != newSum)
+			throw new IllegalStateException("The indexes differ");
+		newIdxToRef = null;
+		newRefToIdx = null;
+	}
+
+	/**
+	 * Runs the benchmark twice, the first run warms up the JIT compiler.
+	 * @param args	the highest object number (1,000,000 by default)
+	 */
+	public static void main(String[] args) {
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		IndexBenchmark benchmark = new IndexBenchmark(n);
+		for (int i = 0; i < 2; i++) {
+			System.out.println("Run " + (i + 1) + ", " + n + " object numbers:");
+			benchmark.run();
+		}
+	}
+}
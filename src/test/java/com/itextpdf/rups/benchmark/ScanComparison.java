@@ -0,0 +1,142 @@
+/*
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 2007-2015 iText Group NV
+ * Authors: Bruno Lowagie et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.rups.benchmark;
+
+import java.io.File;
+
+import com.itextpdf.rups.model.IndirectObjectFactory;
+import com.itextpdf.rups.model.ObjectTypeIndex;
+import com.itextpdf.rups.model.ParallelObjectScanner;
+import com.itextpdf.rups.model.PdfFile;
+
+/**
+ * Checks that the parallel scan of the xref table gives exactly the same
+ * index as the sequential scan: the same idxToRef and refToIdx mappings,
+ * the same page dictionaries and the same object descriptors.
+ * The parallel scan is used whatever the size of the file.
+ * It isn't run by the build; start it with:
+ * <pre>
+ * java -cp target/classes:target/test-classes:itextpdf.jar com.itextpdf.rups.benchmark.ScanComparison file.pdf [file.pdf...]
+ * </pre>
+ * The exit status is 1 if any file gives a different result.
+ */
+public class ScanComparison {
+
+	/**
+	 * Scans a PDF file both ways and compares the results.
+	 * @param file	a PDF file
+	 * @return	the number of differences
+	 * @throws Exception
+	 */
+	protected static int compare(File file) throws Exception {
+		PdfFile pdf = new PdfFile(file, true);
+		try {
+			long start = System.nanoTime();
+			IndirectObjectFactory sequential = new IndirectObjectFactory(pdf.getPdfReader());
+			while (sequential.storeNextObject());
+			long middle = System.nanoTime();
+			IndirectObjectFactory parallel = new IndirectObjectFactory(pdf.getPdfReader());
+			int n = parallel.getXRefMaximum();
+			int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+			parallel.storeObjects(new ParallelObjectScanner(pdf, n, parallel.getTypeIndex(), threads).scan(null));
+			long end = System.nanoTime();
+
+			int differences = 0;
+			if (sequential.size() != parallel.size()) {
+				System.out.println("  size: " + sequential.size() + " != " + parallel.size());
+				differences++;
+			}
+			for (int i = 0; i < Math.min(sequential.size(), parallel.size()); i++) {
+				if (sequential.getRefByIndex(i) != parallel.getRefByIndex(i)) {
+					System.out.println("  idxToRef[" + i + "]: " + sequential.getRefByIndex(i) + " != " + parallel.getRefByIndex(i));
+					differences++;
+				}
+			}
+			ObjectTypeIndex s = sequential.getTypeIndex();
+			ObjectTypeIndex p = parallel.getTypeIndex();
+			for (int ref = 0; ref <= n; ref++) {
+				if (sequential.getIndexByRef(ref) != parallel.getIndexByRef(ref)) {
+					System.out.println("  refToIdx[" + ref + "]: " + sequential.getIndexByRef(ref) + " != " + parallel.getIndexByRef(ref));
+					differences++;
+				}
+				if (sequential.isPage(ref) != parallel.isPage(ref)) {
+					System.out.println("  page " + ref + ": " + sequential.isPage(ref) + " != " + parallel.isPage(ref));
+					differences++;
+				}
+				if (s.getKind(ref) != p.getKind(ref) || s.getLength(ref) != p.getLength(ref)
+						|| !same(s.getType(ref), p.getType(ref)) || !same(s.getSubtype(ref), p.getSubtype(ref))
+						|| !same(s.getFilter(ref), p.getFilter(ref))) {
+					System.out.println("  descriptor of object " + ref + " differs");
+					differences++;
+				}
+			}
+			System.out.println(String.format("%s: %d objects, sequential %d ms, parallel %d ms (%d threads), %d differences",
+					file.getName(), sequential.size(), (middle - start) / 1000000, (end - middle) / 1000000, threads, differences));
+			return differences;
+		}
+		finally {
+			pdf.close();
+		}
+	}
+
+	/**
+	 * Compares two strings that can be null.
+	 */
+	private static boolean same(String a, String b) {
+		return a == null ? b == null : a.equals(b);
+	}
+
+	/**
+	 * Compares the scans of the PDF files that are passed as arguments.
+	 * @param args	the paths of PDF files
+	 * @throws Exception
+	 */
+	public static void main(String[] args) throws Exception {
+		int differences = 0;
+		for (String arg : args) {
+			differences += compare(new File(arg));
+		}
+		System.exit(differences == 0 ? 0 : 1);
+	}
+}
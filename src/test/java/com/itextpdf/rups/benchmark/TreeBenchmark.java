@@ -0,0 +1,164 @@
+/*
+ *
+ * This file is part of the iText (R) project.
+ * Copyright (c) 2007-2015 iText Group NV
+ * Authors: Bruno Lowagie et al.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License version 3
+ * as published by the Free Software Foundation with the addition of the
+ * following permission added to Section 15 as permitted in Section 7(a):
+ * FOR ANY PART OF THE COVERED WORK IN WHICH THE COPYRIGHT IS OWNED BY
+ * ITEXT GROUP. ITEXT GROUP DISCLAIMS THE WARRANTY OF NON INFRINGEMENT
+ * OF THIRD PARTY RIGHTS
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details.
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program; if not, see http://www.gnu.org/licenses or write to
+ * the Free Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA, 02110-1301 USA, or download the license from the following URL:
+ * http://itextpdf.com/terms-of-use/
+ *
+ * The interactive user interfaces in modified source and object code versions
+ * of this program must display Appropriate Legal Notices, as required under
+ * Section 5 of the GNU Affero General Public License.
+ *
+ * In accordance with Section 7(b) of the GNU Affero General Public License,
+ * a covered work must retain the producer line in every PDF that is created
+ * or manipulated using iText.
+ *
+ * You can be released from the requirements of the license by purchasing
+ * a commercial license. Buying such a license is mandatory as soon as you
+ * develop commercial activities involving the iText software without
+ * disclosing the source code of your own applications.
+ * These activities include: offering paid services to customers as an ASP,
+ * serving PDFs on the fly in a web application, shipping iText with a closed
+ * source product.
+ *
+ * For more information, please contact iText Software Corp. at this
+ * address: sales@itextpdf.com
+ */
+package com.itextpdf.rups.benchmark;
+
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import javax.swing.JTree;
+import javax.swing.SwingUtilities;
+import javax.swing.tree.DefaultTreeModel;
+import javax.swing.tree.TreePath;
+
+import com.itextpdf.rups.view.icons.IconTreeCellRenderer;
+import com.itextpdf.rups.view.icons.IconTreeNode;
+
+/**
+ * Measures how fast a JTree with an IconTreeCellRenderer expands and scrolls
+ * through a synthetic tree of about a million nodes, with the large-model
+ * mode on and off. The tree is painted into an image, page by page, so the
+ * benchmark also runs headless. It isn't run by the build; start it with:
+ * <pre>
+ * java -cp target/classes:target/test-classes com.itextpdf.rups.benchmark.TreeBenchmark [branches] [leaves] [pages]
+ * </pre>
+ */
+public class TreeBenchmark {
+
+	/** The width of a page. */
+	public static final int WIDTH = 800;
+	/** The height of a page. */
+	public static final int HEIGHT = 600;
+
+	/** The number of nodes under the root. */
+	protected int branches;
+	/** The number of leaves under every branch. */
+	protected int leaves;
+	/** The number of pages that are scrolled (0 scrolls the whole tree). */
+	protected int pages;
+
+	/**
+	 * Creates a benchmark.
+	 * @param branches	the number of nodes under the root
+	 * @param leaves	the number of leaves under every branch
+	 * @param pages		the number of pages that are scrolled (0 scrolls the whole tree)
+	 */
+	public TreeBenchmark(int branches, int leaves, int pages) {
+		this.branches = branches;
+		this.leaves = leaves;
+		this.pages = pages;
+	}
+
+	/**
+	 * Builds the synthetic tree.
+	 * @return	the root node
+	 */
+	protected IconTreeNode createTree() {
+		IconTreeNode root = new IconTreeNode("pdf.png", "Synthetic tree");
+		for (int i = 0; i < branches; i++) {
+			IconTreeNode branch = new IconTreeNode("dictionary.png", "Branch " + i);
+			for (int j = 0; j < leaves; j++) {
+				branch.add(new IconTreeNode("name.png", "/Key" + j + ": leaf " + i + "." + j));
+			}
+			root.add(branch);
+		}
+		return root;
+	}
+
+	/**
+	 * Expands all the branches of a tree and scrolls through it.
+	 * @param large	true to run the tree in large-model mode
+	 */
+	protected void run(boolean large) {
+		System.setProperty(IconTreeCellRenderer.LARGE_MODEL_PROPERTY, String.valueOf(large));
+		IconTreeNode root = createTree();
+		JTree tree = new JTree(new DefaultTreeModel(root));
+		IconTreeCellRenderer.install(tree);
+
+		long start = System.nanoTime();
+		TreePath path = new TreePath(root);
+		for (int i = 0; i < branches; i++) {
+			tree.expandPath(path.pathByAddingChild(root.getChildAt(i)));
+		}
+		Dimension size = tree.getPreferredSize();
+		long expanded = System.nanoTime();
+
+		tree.setSize(Math.max(size.width, WIDTH), size.height);
+		BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+		int total = (size.height + HEIGHT - 1) / HEIGHT;
+		int scrolled = pages > 0 ? Math.min(pages, total) : total;
+		for (int page = 0; page < scrolled; page++) {
+			Graphics2D g = image.createGraphics();
+			g.translate(0, -page * HEIGHT);
+			g.setClip(0, page * HEIGHT, WIDTH, HEIGHT);
+			tree.paint(g);
+			g.dispose();
+		}
+		long done = System.nanoTime();
+
+		System.out.println(String.format("large model %-5s  rows %8d  expand all %7d ms  scroll %6d pages %7d ms (%.2f ms/page)",
+				large, tree.getRowCount(), (expanded - start) / 1000000, scrolled, (done - expanded) / 1000000,
+				scrolled == 0 ? 0.0 : (done - expanded) / 1000000.0 / scrolled));
+	}
+
+	/**
+	 * Runs the benchmark twice in each mode; the first run warms up the JIT.
+	 * @param args	the number of branches, the number of leaves per branch, and the number of pages to scroll
+	 * @throws Exception
+	 */
+	public static void main(String[] args) throws Exception {
+		final TreeBenchmark benchmark = new TreeBenchmark(
+				args.length > 0 ? Integer.parseInt(args[0]) : 1000,
+				args.length > 1 ? Integer.parseInt(args[1]) : 1000,
+				args.length > 2 ? Integer.parseInt(args[2]) : 0);
+		SwingUtilities.invokeAndWait(new Runnable() {
+			public void run() {
+				for (int i = 0; i < 2; i++) {
+					benchmark.run(false);
+					benchmark.run(true);
+				}
+			}
+		});
+	}
+}